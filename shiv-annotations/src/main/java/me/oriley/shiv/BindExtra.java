@@ -29,4 +29,7 @@ public @interface BindExtra {
     String value();
 
     boolean optional() default false;
+
+    // Literal used when a primitive extra is missing, which makes the extra optional
+    String defaultValue() default "";
 }
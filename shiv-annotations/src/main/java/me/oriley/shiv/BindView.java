@@ -28,5 +28,14 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 public @interface BindView {
 
-    @IdRes int value();
+    @IdRes int value() default 0;
+
+    // Name of an R.id field in the shiv.rPackage package, for library modules where ids are not constants
+    String idName() default "";
+
+    // Binds a LazyView field, resolved on first access instead of during the view walk
+    boolean lazy() default false;
+
+    // Id of the ViewStub the view is inflated from, binding it when the stub inflates using the stub's inflate listener
+    @IdRes int stub() default 0;
 }
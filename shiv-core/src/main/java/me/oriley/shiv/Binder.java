@@ -19,6 +19,7 @@ package me.oriley.shiv;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.view.View;
 
 import java.util.Map;
 
@@ -27,11 +28,74 @@ public abstract class Binder {
 
     public static final String CLASS_SUFFIX = "_Shiv";
 
+    public static final int BIND_VIEWS = 1;
+    public static final int UNBIND_VIEWS = 1 << 1;
+    public static final int BIND_EXTRAS = 1 << 2;
+    public static final int BIND_PREFERENCES = 1 << 3;
+    public static final int UNBIND_PREFERENCES = 1 << 4;
+    public static final int BIND_SERVICES = 1 << 5;
+    public static final int SAVE_INSTANCE = 1 << 6;
+    public static final int RESTORE_INSTANCE = 1 << 7;
+    public static final int SAVE_NON_CONFIGURATION_INSTANCE = 1 << 8;
+    public static final int RESTORE_NON_CONFIGURATION_INSTANCE = 1 << 9;
+    public static final int BIND_RESOURCES = 1 << 10;
+
+    public static final int OPERATION_COUNT = 11;
+    public static final int ALL_OPERATIONS = (1 << OPERATION_COUNT) - 1;
+
+
+    // Mask of the operations this binder overrides, binders that don't report any are assumed to handle all of them
+    public int getOperations() {
+        return ALL_OPERATIONS;
+    }
+
+    // Runs the given operations in flag order, so views are bound before instance state is restored
+    public void bind(@NonNull final Object host, int operations, @Nullable Bundle bundle) {
+        if ((operations & BIND_VIEWS) != 0) {
+            bindViews(host);
+        }
+        if ((operations & UNBIND_VIEWS) != 0) {
+            unbindViews(host);
+        }
+        if ((operations & BIND_EXTRAS) != 0) {
+            bindExtras(host);
+        }
+        if ((operations & BIND_PREFERENCES) != 0) {
+            bindPreferences(host);
+        }
+        if ((operations & UNBIND_PREFERENCES) != 0) {
+            unbindPreferences(host);
+        }
+        if ((operations & BIND_SERVICES) != 0) {
+            bindServices(host);
+        }
+        if ((operations & SAVE_INSTANCE) != 0) {
+            saveInstance(host, bundle);
+        }
+        if ((operations & RESTORE_INSTANCE) != 0) {
+            restoreInstance(host, bundle);
+        }
+        if ((operations & RESTORE_NON_CONFIGURATION_INSTANCE) != 0) {
+            restoreNonConfigurationInstance(host);
+        }
+        if ((operations & BIND_RESOURCES) != 0) {
+            bindResources(host);
+        }
+    }
 
     public void bindViews(@NonNull final Object host) {
         // To be overridden
     }
 
+    public void bindViews(@NonNull final Object host, @NonNull View root) {
+        // To be overridden
+    }
+
+    // Binds only views in a subtree added after the host was bound, leaving fields that are already bound alone
+    public void bindAddedViews(@NonNull final Object host, @NonNull View subtree) {
+        // To be overridden
+    }
+
     public void unbindViews(@NonNull final Object host) {
         // To be overridden
     }
@@ -67,4 +131,22 @@ public abstract class Binder {
     public void restoreNonConfigurationInstance(@NonNull final Object host) {
         // To be overridden
     }
+
+    public void bindResources(@NonNull final Object host) {
+        // To be overridden
+    }
+
+    protected static void reportViewsBound(@NonNull Object host, int viewsVisited, int fieldsBound) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        if (metrics != null) {
+            metrics.onViewsBound(host.getClass(), viewsVisited, fieldsBound);
+        }
+    }
+
+    protected static void reportServicesBound(@NonNull Object host, int servicesResolved) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        if (metrics != null) {
+            metrics.onServicesBound(host.getClass(), servicesResolved);
+        }
+    }
 }
\ No newline at end of file
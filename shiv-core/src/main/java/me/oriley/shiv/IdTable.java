@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Sorted id lookup for view binders whose ids are not compile time constants, such as those in library modules.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class IdTable {
+
+    @NonNull
+    private final int[] mIds;
+
+    @NonNull
+    private final int[] mIndices;
+
+    private final int mMin;
+
+    private final int mMax;
+
+
+    // Ids are given in binding index order. Each index tracks one view, so a repeated id, such as a library id bound
+    // both by name and by value, is rejected rather than leaving an index that can never be bound
+    public IdTable(@NonNull int... ids) {
+        long[] entries = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            // Sort on id, then index, by packing both into one value
+            entries[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(entries);
+
+        int count = 0;
+        int[] sortedIds = new int[ids.length];
+        int[] indices = new int[ids.length];
+        for (long entry : entries) {
+            int id = (int) (entry >> 32);
+            if (count > 0 && sortedIds[count - 1] == id) {
+                throw new IllegalArgumentException("Duplicate id " + id + " at indices " + indices[count - 1] +
+                        " and " + (int) entry);
+            }
+            sortedIds[count] = id;
+            indices[count] = (int) entry;
+            count++;
+        }
+
+        mIds = sortedIds;
+        mIndices = indices;
+        mMin = count > 0 ? mIds[0] : 0;
+        mMax = count > 0 ? mIds[count - 1] : -1;
+    }
+
+
+    // Binding index for the id, or -1, with a range check first so most unrelated views skip the search
+    public int indexOf(int id) {
+        if (id < mMin || id > mMax) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = mIds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = mIds[mid];
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mIndices[mid];
+            }
+        }
+        return -1;
+    }
+}
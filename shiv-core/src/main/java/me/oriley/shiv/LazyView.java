@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+/**
+ * Holder for a lazily bound view, looked up by id within the bound root on first access and cached until unbound.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class LazyView<T extends View> {
+
+    @Nullable
+    private View mRoot;
+
+    @Nullable
+    private T mView;
+
+    @IdRes
+    private int mId;
+
+    private boolean mOptional;
+
+
+    public void attach(@NonNull View root, @IdRes int id, boolean optional) {
+        mRoot = root;
+        mId = id;
+        mOptional = optional;
+        mView = null;
+    }
+
+    public void reset() {
+        mRoot = null;
+        mView = null;
+    }
+
+    public boolean isResolved() {
+        return mView != null;
+    }
+
+    // Returns null only for optional views, or when not bound
+    @Nullable
+    public T get() {
+        if (mView == null && mRoot != null) {
+            @SuppressWarnings("unchecked")
+            T view = (T) mRoot.findViewById(mId);
+            mView = view;
+            if (mView == null && !mOptional) {
+                throw new NullPointerException("Non-optional lazy view 0x" + Integer.toHexString(mId) + " was not found");
+            }
+        }
+        return mView;
+    }
+}
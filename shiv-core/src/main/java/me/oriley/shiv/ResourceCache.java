@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caches of resource values read by generated binders, one for each live {@link Resources} object and valid for a
+ * single configuration of it. A bind with resources whose configuration has changed replaces their cache, and
+ * {@link #invalidate()} drops all of them explicitly.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ResourceCache {
+
+    // Copied on write, as there are rarely more than a few live resources, one for each window's configuration
+    @NonNull
+    private static volatile ResourceCache[] sCaches = new ResourceCache[0];
+
+    @NonNull
+    private final WeakReference<Resources> mResources;
+
+    @NonNull
+    private final Configuration mConfiguration;
+
+    @NonNull
+    private final SparseArray<String> mStrings = new SparseArray<>();
+
+    // Stored as raw bits to avoid boxing
+    @NonNull
+    private final SparseIntArray mDimensions = new SparseIntArray();
+
+    @NonNull
+    private final SparseIntArray mDimensionPixelSizes = new SparseIntArray();
+
+    @NonNull
+    private final SparseIntArray mColors = new SparseIntArray();
+
+    @NonNull
+    private final SparseIntArray mIntegers = new SparseIntArray();
+
+    // Drawables are mutable, so only their constant state is shared and each bind gets a new instance
+    @NonNull
+    private final SparseArray<Drawable.ConstantState> mDrawableStates = new SparseArray<>();
+
+
+    private ResourceCache(@NonNull Resources resources, @NonNull Configuration configuration) {
+        mResources = new WeakReference<>(resources);
+        mConfiguration = new Configuration(configuration);
+    }
+
+
+    // Cache for these resources in their current configuration, checked once per bind rather than per value
+    @NonNull
+    public static ResourceCache get(@NonNull Resources resources) {
+        Configuration configuration = resources.getConfiguration();
+        ResourceCache cache = find(sCaches, resources, configuration);
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (ResourceCache.class) {
+            cache = find(sCaches, resources, configuration);
+            if (cache == null) {
+                cache = new ResourceCache(resources, configuration);
+                sCaches = copyWithout(resources, cache);
+            }
+            return cache;
+        }
+    }
+
+    // For hosts that handle configuration changes themselves, or when resources are replaced at runtime
+    public static synchronized void invalidate() {
+        sCaches = new ResourceCache[0];
+    }
+
+    @Nullable
+    private static ResourceCache find(@NonNull ResourceCache[] caches, @NonNull Resources resources,
+                                      @NonNull Configuration configuration) {
+        for (ResourceCache cache : caches) {
+            if (cache.mResources.get() == resources && cache.mConfiguration.equals(configuration)) {
+                return cache;
+            }
+        }
+        return null;
+    }
+
+    // Drops any earlier cache for the resources and caches of collected resources, adding the new cache
+    @NonNull
+    private static ResourceCache[] copyWithout(@NonNull Resources resources, @NonNull ResourceCache added) {
+        List<ResourceCache> caches = new ArrayList<>(sCaches.length + 1);
+        for (ResourceCache cache : sCaches) {
+            Resources cached = cache.mResources.get();
+            if (cached != null && cached != resources) {
+                caches.add(cache);
+            }
+        }
+        caches.add(added);
+        return caches.toArray(new ResourceCache[caches.size()]);
+    }
+
+    @NonNull
+    public synchronized String getString(@NonNull Resources resources, int id) {
+        String value = mStrings.get(id);
+        if (value == null) {
+            value = resources.getString(id);
+            mStrings.put(id, value);
+        }
+        return value;
+    }
+
+    public synchronized float getDimension(@NonNull Resources resources, int id) {
+        int index = mDimensions.indexOfKey(id);
+        if (index >= 0) {
+            return Float.intBitsToFloat(mDimensions.valueAt(index));
+        }
+        float value = resources.getDimension(id);
+        mDimensions.put(id, Float.floatToRawIntBits(value));
+        return value;
+    }
+
+    public synchronized int getDimensionPixelSize(@NonNull Resources resources, int id) {
+        int index = mDimensionPixelSizes.indexOfKey(id);
+        if (index >= 0) {
+            return mDimensionPixelSizes.valueAt(index);
+        }
+        int value = resources.getDimensionPixelSize(id);
+        mDimensionPixelSizes.put(id, value);
+        return value;
+    }
+
+    @SuppressWarnings("deprecation")
+    public synchronized int getColor(@NonNull Resources resources, int id) {
+        int index = mColors.indexOfKey(id);
+        if (index >= 0) {
+            return mColors.valueAt(index);
+        }
+        int value = resources.getColor(id);
+        mColors.put(id, value);
+        return value;
+    }
+
+    public synchronized int getInteger(@NonNull Resources resources, int id) {
+        int index = mIntegers.indexOfKey(id);
+        if (index >= 0) {
+            return mIntegers.valueAt(index);
+        }
+        int value = resources.getInteger(id);
+        mIntegers.put(id, value);
+        return value;
+    }
+
+    @Nullable
+    @SuppressWarnings("deprecation")
+    public synchronized Drawable getDrawable(@NonNull Resources resources, int id) {
+        Drawable.ConstantState state = mDrawableStates.get(id);
+        if (state != null) {
+            return state.newDrawable(resources);
+        }
+        Drawable drawable = resources.getDrawable(id);
+        if (drawable != null && drawable.getConstantState() != null) {
+            mDrawableStates.put(id, drawable.getConstantState());
+        }
+        return drawable;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Receives timings and counters for bind operations. Callbacks may arrive on any thread that binds.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public abstract class ShivMetrics {
+
+    @Nullable
+    static volatile ShivMetrics sInstance;
+
+
+    // Called once per operation on a host, with the operation as a Binder flag, or a mask of them for Shiv.bind
+    public void onOperation(@NonNull Class<?> hostClass, int operation, long durationNanos) {
+        // To be overridden
+    }
+
+    public void onViewsBound(@NonNull Class<?> hostClass, int viewsVisited, int fieldsBound) {
+        // To be overridden
+    }
+
+    // Called when a binder with learned view paths tries them, hit is false if the layout no longer matched
+    public void onViewPathsReplayed(@NonNull Class<?> hostClass, boolean hit) {
+        // To be overridden
+    }
+
+    public void onServicesBound(@NonNull Class<?> hostClass, int servicesResolved) {
+        // To be overridden
+    }
+
+    public void onInstanceSaved(@NonNull Class<?> hostClass, int bytesWritten) {
+        // To be overridden
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+/**
+ * Child index paths from a binder's root to each of its views, found by layout analysis or learned from a complete
+ * walk, and replayed with getChildAt on later binds. Each replayed view must still have its id, otherwise the walk runs.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ViewPaths {
+
+    @NonNull
+    private final int[] mIds;
+
+    @Nullable
+    private volatile int[][] mPaths;
+
+
+    public ViewPaths(@NonNull int... ids) {
+        mIds = ids;
+    }
+
+    public ViewPaths(@NonNull int[] ids, @NonNull int[][] paths) {
+        mIds = ids;
+        mPaths = paths;
+    }
+
+
+    public boolean replay(@NonNull Object host, @NonNull View root, @NonNull ViewTraversal traversal) {
+        int[][] paths = mPaths;
+        if (paths == null) {
+            return false;
+        }
+
+        for (int i = 0; i < paths.length; i++) {
+            View view = follow(root, paths[i]);
+            if (view == null || view.getId() != mIds[i]) {
+                traversal.clearViews();
+                report(host, false);
+                return false;
+            }
+            traversal.setView(i, view);
+        }
+
+        traversal.remaining = 0;
+        report(host, true);
+        return true;
+    }
+
+    // Only complete walks are learned, as a path can't confirm that an optional view is still missing
+    public void learn(@NonNull View root, @NonNull ViewTraversal traversal) {
+        if (traversal.remaining != 0) {
+            return;
+        }
+
+        int[][] paths = new int[mIds.length][];
+        for (int i = 0; i < mIds.length; i++) {
+            View view = traversal.getView(i);
+            int[] path = view != null ? pathTo(root, view) : null;
+            if (path == null) {
+                return;
+            }
+            paths[i] = path;
+        }
+        mPaths = paths;
+    }
+
+    @Nullable
+    private static View follow(@NonNull View root, @NonNull int[] path) {
+        View view = root;
+        for (int index : path) {
+            if (!(view instanceof ViewGroup)) {
+                return null;
+            }
+            ViewGroup group = (ViewGroup) view;
+            if (index >= group.getChildCount()) {
+                return null;
+            }
+            view = group.getChildAt(index);
+        }
+        return view;
+    }
+
+    @Nullable
+    private static int[] pathTo(@NonNull View root, @NonNull View view) {
+        int depth = 0;
+        View current = view;
+        while (current != root) {
+            ViewParent parent = current.getParent();
+            if (!(parent instanceof ViewGroup)) {
+                return null;
+            }
+            current = (View) parent;
+            depth++;
+        }
+
+        int[] path = new int[depth];
+        current = view;
+        for (int i = depth - 1; i >= 0; i--) {
+            ViewGroup parent = (ViewGroup) current.getParent();
+            path[i] = parent.indexOfChild(current);
+            current = parent;
+        }
+        return path;
+    }
+
+    private static void report(@NonNull Object host, boolean hit) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        if (metrics != null) {
+            metrics.onViewPathsReplayed(host.getClass(), hit);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * State shared across a single generated view walk. Instances are pooled per thread, so always recycle once the walk
+ * is done, on the thread that obtained them.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ViewTraversal {
+
+    private static final int MAX_POOL_SIZE = 4;
+    private static final int INITIAL_DEPTH = 16;
+
+    // Confined to one thread, so obtaining and recycling never lock. More than one instance is only needed when a
+    // bind on that thread starts another, such as a view binding itself while its parent is bound.
+    @NonNull
+    private static final ThreadLocal<Pool> sPool = new ThreadLocal<Pool>() {
+        @NonNull
+        @Override
+        protected Pool initialValue() {
+            return new Pool();
+        }
+    };
+
+    public int visited;
+
+    // Ids still to be found, the walk can stop once this reaches zero
+    public int remaining;
+
+    @NonNull
+    private long[] mFound = new long[1];
+
+    // Explicit stack for iterative walks, kept with the pooled instance so steady state walks don't allocate
+    @NonNull
+    private ViewGroup[] mGroups = new ViewGroup[INITIAL_DEPTH];
+
+    @NonNull
+    private int[] mNextChild = new int[INITIAL_DEPTH];
+
+    private int mDepth;
+
+    // Views found by id index, only filled for binders that learn view paths
+    @NonNull
+    private View[] mViews = new View[0];
+
+    private int mIdCount;
+
+
+    private ViewTraversal() {
+    }
+
+
+    @NonNull
+    public static ViewTraversal obtain(int idCount) {
+        Pool pool = sPool.get();
+        ViewTraversal traversal = null;
+        if (pool.mSize > 0) {
+            traversal = pool.mTraversals[--pool.mSize];
+            pool.mTraversals[pool.mSize] = null;
+        }
+        if (traversal == null) {
+            traversal = new ViewTraversal();
+        }
+
+        int words = (idCount + 63) >>> 6;
+        if (traversal.mFound.length < words) {
+            traversal.mFound = new long[words];
+        }
+        traversal.remaining = idCount;
+        traversal.mIdCount = idCount;
+        return traversal;
+    }
+
+    // Marks the id at this index as found, returning false if an earlier view with the same id was already bound
+    public boolean bind(int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        if ((mFound[word] & bit) != 0) {
+            return false;
+        }
+        mFound[word] |= bit;
+        remaining--;
+        return true;
+    }
+
+    // Whether the id at this index was found by the walk or by a replayed path
+    public boolean isBound(int index) {
+        return (mFound[index >>> 6] & (1L << index)) != 0 || getView(index) != null;
+    }
+
+    public boolean bind(int index, @NonNull View view) {
+        if (!bind(index)) {
+            return false;
+        }
+        setView(index, view);
+        return true;
+    }
+
+    @Nullable
+    public View getView(int index) {
+        return index < mViews.length ? mViews[index] : null;
+    }
+
+    void setView(int index, @NonNull View view) {
+        if (mViews.length < mIdCount) {
+            View[] views = new View[mIdCount];
+            System.arraycopy(mViews, 0, views, 0, mViews.length);
+            mViews = views;
+        }
+        mViews[index] = view;
+    }
+
+    void clearViews() {
+        for (int i = 0; i < mViews.length; i++) {
+            mViews[i] = null;
+        }
+    }
+
+    public void push(@NonNull ViewGroup group) {
+        if (mDepth == mGroups.length) {
+            ViewGroup[] groups = new ViewGroup[mDepth * 2];
+            System.arraycopy(mGroups, 0, groups, 0, mDepth);
+            mGroups = groups;
+            int[] nextChild = new int[mDepth * 2];
+            System.arraycopy(mNextChild, 0, nextChild, 0, mDepth);
+            mNextChild = nextChild;
+        }
+        mGroups[mDepth] = group;
+        mNextChild[mDepth] = 0;
+        mDepth++;
+    }
+
+    // Next view in depth-first order below the pushed groups, or null once they are exhausted
+    @Nullable
+    public View next() {
+        while (mDepth > 0) {
+            int top = mDepth - 1;
+            ViewGroup group = mGroups[top];
+            int index = mNextChild[top];
+            if (index < group.getChildCount()) {
+                mNextChild[top] = index + 1;
+                return group.getChildAt(index);
+            }
+            mGroups[top] = null;
+            mDepth = top;
+        }
+        return null;
+    }
+
+    public void recycle() {
+        visited = 0;
+        remaining = 0;
+        for (int i = 0; i < mFound.length; i++) {
+            mFound[i] = 0;
+        }
+        // A walk that stopped early leaves groups on the stack, which must not be retained by the pool
+        for (int i = 0; i < mDepth; i++) {
+            mGroups[i] = null;
+        }
+        mDepth = 0;
+        clearViews();
+        Pool pool = sPool.get();
+        if (pool.mSize < MAX_POOL_SIZE) {
+            pool.mTraversals[pool.mSize++] = this;
+        }
+    }
+
+    private static final class Pool {
+
+        @NonNull
+        final ViewTraversal[] mTraversals = new ViewTraversal[MAX_POOL_SIZE];
+
+        int mSize;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks table lookups against the switch generated for constant ids, and compares their cost.
+ */
+public final class IdTableTest {
+
+    private static final int[] IDS = {0x7f0a0012, 0x7f0a0003, 0x7f0a0108, 0x7f0a0041, 0x7f0a0007, 0x7f0a0090,
+            0x7f0a0011, 0x7f0a0100};
+    private static final int NO_ID = -1;
+    private static final int[] BENCHMARK_SIZES = {5, 50, 500};
+    private static final int BENCHMARK_LOOKUPS = 20000000;
+
+
+    @Test
+    public void indexOfReturnsBindingIndex() {
+        IdTable table = new IdTable(IDS);
+        for (int i = 0; i < IDS.length; i++) {
+            assertEquals(i, table.indexOf(IDS[i]));
+        }
+    }
+
+    @Test
+    public void indexOfMatchesSwitchForEveryId() {
+        IdTable table = new IdTable(IDS);
+        for (int id = 0x7f0a0000; id < 0x7f0a0200; id++) {
+            assertEquals(switchIndexOf(id), table.indexOf(id));
+        }
+        assertEquals(-1, table.indexOf(NO_ID));
+        assertEquals(-1, table.indexOf(Integer.MIN_VALUE));
+        assertEquals(-1, table.indexOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void negativeIdsAreOrderedBeforePositive() {
+        IdTable table = new IdTable(5, -3, Integer.MIN_VALUE, 0);
+        assertEquals(0, table.indexOf(5));
+        assertEquals(1, table.indexOf(-3));
+        assertEquals(2, table.indexOf(Integer.MIN_VALUE));
+        assertEquals(3, table.indexOf(0));
+        assertEquals(-1, table.indexOf(-1));
+    }
+
+    @Test
+    public void emptyTableFindsNothing() {
+        IdTable table = new IdTable();
+        assertEquals(-1, table.indexOf(0));
+        assertEquals(-1, table.indexOf(-1));
+    }
+
+    @Test
+    public void duplicateIdsAreRejected() {
+        try {
+            new IdTable(0x7f0a0001, 0x7f0a0002, 0x7f0a0001);
+            fail("Expected duplicate id to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains(String.valueOf(0x7f0a0001)));
+        }
+    }
+
+    // Not a pass or fail check, prints the cost of each lookup over mostly unbound ids, as in a real layout, for
+    // holders of several sizes. The switch is compiled at runtime, as writing one out per size is unwieldy.
+    // Ignored so it stays out of the default run; remove @Ignore locally and run it alone with
+    // ./gradlew :shiv-core:test --tests me.oriley.shiv.IdTableTest
+    @Ignore("Benchmark")
+    @Test
+    public void benchmarkSwitchAgainstTable() throws Exception {
+        for (int size : BENCHMARK_SIZES) {
+            benchmarkSwitchAgainstTable(size);
+        }
+    }
+
+    private static void benchmarkSwitchAgainstTable(int size) throws Exception {
+        // Bound ids are a scattered subset of the module's ids, which are assigned in sequence
+        Random random = new Random(size);
+        int[] ids = new int[size];
+        boolean[] used = new boolean[size * 4];
+        for (int i = 0; i < size; i++) {
+            int offset;
+            do {
+                offset = random.nextInt(used.length);
+            } while (used[offset]);
+            used[offset] = true;
+            ids[i] = 0x7f0a0000 + offset;
+        }
+
+        IdTable table = new IdTable(ids);
+        IndexOf switchLookup = compileSwitch(ids);
+        int[] lookups = new int[size * 8];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = i % 8 == 0 ? ids[i / 8] : 0x7f0a0000 + random.nextInt(used.length * 2);
+        }
+        for (int id : lookups) {
+            assertEquals(switchLookup.indexOf(id), table.indexOf(id));
+        }
+
+        int iterations = BENCHMARK_LOOKUPS / lookups.length;
+        long sink = 0;
+        for (int i = 0; i < iterations / 10; i++) {
+            sink += lookupSwitch(switchLookup, lookups) + lookupTable(table, lookups);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += lookupSwitch(switchLookup, lookups);
+        }
+        long switchNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += lookupTable(table, lookups);
+        }
+        long tableNanos = System.nanoTime() - start;
+
+        long count = (long) lookups.length * iterations;
+        System.out.println(String.format("Lookup of %d ids: switch %.2f ns/lookup, table %.2f ns/lookup (%d)",
+                size, (double) switchNanos / count, (double) tableNanos / count, sink));
+    }
+
+    private static int lookupSwitch(@NonNull IndexOf lookup, @NonNull int[] lookups) {
+        int found = 0;
+        for (int id : lookups) {
+            found += lookup.indexOf(id);
+        }
+        return found;
+    }
+
+    private static int lookupTable(@NonNull IdTable table, @NonNull int[] lookups) {
+        int found = 0;
+        for (int id : lookups) {
+            found += table.indexOf(id);
+        }
+        return found;
+    }
+
+    // Compiles the equivalent of the switch generated for constant ids
+    @NonNull
+    private static IndexOf compileSwitch(@NonNull int[] ids) throws Exception {
+        String className = "Switch" + ids.length;
+        StringBuilder source = new StringBuilder("public final class ").append(className)
+                .append(" implements ").append(IndexOf.class.getCanonicalName()).append(" {\n")
+                .append("    public int indexOf(int id) {\n")
+                .append("        switch (id) {\n");
+        for (int i = 0; i < ids.length; i++) {
+            source.append("            case ").append(ids[i]).append(": return ").append(i).append(";\n");
+        }
+        source.append("            default: return -1;\n        }\n    }\n}\n");
+
+        File output = Files.createTempDirectory("shiv").toFile();
+        File file = new File(output, className + ".java");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(source.toString());
+        }
+        URL testClasses = IdTableTest.class.getProtectionDomain().getCodeSource().getLocation();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, "-d", output.getPath(), "-classpath", new File(testClasses.toURI()).getPath(),
+                file.getPath()) != 0) {
+            throw new AssertionError("Failed to compile " + className);
+        }
+
+        ClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, IdTableTest.class.getClassLoader());
+        return (IndexOf) loader.loadClass(className).newInstance();
+    }
+
+    public interface IndexOf {
+        int indexOf(int id);
+    }
+
+    // Equivalent of the switch generated for constant ids
+    private static int switchIndexOf(int id) {
+        switch (id) {
+            case 0x7f0a0012:
+                return 0;
+            case 0x7f0a0003:
+                return 1;
+            case 0x7f0a0108:
+                return 2;
+            case 0x7f0a0041:
+                return 3;
+            case 0x7f0a0007:
+                return 4;
+            case 0x7f0a0090:
+                return 5;
+            case 0x7f0a0011:
+                return 6;
+            case 0x7f0a0100:
+                return 7;
+            default:
+                return -1;
+        }
+    }
+}
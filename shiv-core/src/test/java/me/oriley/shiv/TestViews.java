@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+/**
+ * Minimal views for walking trees on the JVM. Framework constructors need a working Context, so instances are created
+ * without running them, and only the methods used by generated walks are overridden.
+ */
+final class TestViews {
+
+    @NonNull
+    private static final Objenesis OBJENESIS = new ObjenesisStd();
+
+
+    private TestViews() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    @NonNull
+    static View view(int id) {
+        TestView view = OBJENESIS.newInstance(TestView.class);
+        view.mTestId = id;
+        return view;
+    }
+
+    @NonNull
+    static ViewGroup group(int id, @NonNull View... children) {
+        TestGroup group = OBJENESIS.newInstance(TestGroup.class);
+        group.mTestId = id;
+        group.mChildren = children;
+        return group;
+    }
+
+    static final class TestView extends View {
+
+        int mTestId;
+
+
+        TestView() {
+            super(null);
+        }
+
+
+        @Override
+        public int getId() {
+            return mTestId;
+        }
+    }
+
+    static final class TestGroup extends ViewGroup {
+
+        int mTestId;
+
+        View[] mChildren;
+
+
+        TestGroup() {
+            super(null);
+        }
+
+
+        @Override
+        public int getId() {
+            return mTestId;
+        }
+
+        @Override
+        public int getChildCount() {
+            return mChildren.length;
+        }
+
+        @Override
+        public View getChildAt(int index) {
+            return mChildren[index];
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        }
+    }
+}
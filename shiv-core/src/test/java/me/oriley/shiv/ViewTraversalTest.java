@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static me.oriley.shiv.TestViews.group;
+import static me.oriley.shiv.TestViews.view;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bookkeeping behind generated walks, and that the iterative walk visits the same views in the same order
+ * as the recursive one. The walks mirror the code generated for each shiv.viewTraversal mode.
+ */
+public final class ViewTraversalTest {
+
+    private static final int[] BENCHMARK_DEPTHS = {10, 50, 200, 400};
+    private static final int BENCHMARK_WARMUP = 2000;
+    private static final int BENCHMARK_VIEWS = 10000000;
+
+
+    @Test
+    public void bindMarksEachIndexOnceAcrossWords() {
+        ViewTraversal traversal = ViewTraversal.obtain(130);
+        try {
+            assertEquals(130, traversal.remaining);
+            for (int i = 0; i < 130; i++) {
+                assertFalse(traversal.isBound(i));
+                assertTrue(traversal.bind(i));
+                assertFalse(traversal.bind(i));
+                assertTrue(traversal.isBound(i));
+            }
+            assertEquals(0, traversal.remaining);
+        } finally {
+            traversal.recycle();
+        }
+    }
+
+    @Test
+    public void recycledTraversalIsReusedClean() {
+        ViewTraversal traversal = ViewTraversal.obtain(3);
+        traversal.bind(1, view(1));
+        traversal.push(group(2, view(3)));
+        traversal.visited = 5;
+        traversal.recycle();
+
+        ViewTraversal reused = ViewTraversal.obtain(3);
+        try {
+            assertSame(traversal, reused);
+            assertEquals(0, reused.visited);
+            assertEquals(3, reused.remaining);
+            assertFalse(reused.isBound(1));
+            assertNull(reused.getView(1));
+            assertNull(reused.next());
+        } finally {
+            reused.recycle();
+        }
+    }
+
+    @Test
+    public void poolIsConfinedToThread() throws Exception {
+        final ViewTraversal traversal = ViewTraversal.obtain(1);
+        traversal.recycle();
+
+        final AtomicReference<ViewTraversal> other = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ViewTraversal obtained = ViewTraversal.obtain(1);
+                other.set(obtained);
+                obtained.recycle();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertNotSame(traversal, other.get());
+        ViewTraversal reused = ViewTraversal.obtain(1);
+        assertSame(traversal, reused);
+        reused.recycle();
+    }
+
+    @Test
+    public void iterativeWalkMatchesRecursiveOrder() {
+        View root = createTree(30, 3);
+        int[] ids = {1003, 5001, 20002, 29000};
+
+        List<Integer> recursive = new ArrayList<>();
+        List<Integer> iterative = new ArrayList<>();
+        int recursiveVisited = walk(root, ids, false, recursive);
+        int iterativeVisited = walk(root, ids, true, iterative);
+
+        assertEquals(recursive, iterative);
+        assertEquals(recursiveVisited, iterativeVisited);
+        // Both stop at the last bound id rather than walking the rest of the tree
+        assertEquals(29000, (int) recursive.get(recursive.size() - 1));
+    }
+
+    @Test
+    public void walksVisitWholeTreeWhenIdsAreMissing() {
+        View root = createTree(10, 2);
+        int[] ids = {404};
+
+        List<Integer> recursive = new ArrayList<>();
+        List<Integer> iterative = new ArrayList<>();
+        walk(root, ids, false, recursive);
+        walk(root, ids, true, iterative);
+
+        assertEquals(recursive, iterative);
+        assertEquals(10 * 3, recursive.size());
+    }
+
+    // Not a pass or fail check, prints the cost of each walk over trees of several depths for comparison between
+    // modes. Ignored so it stays out of the default run; remove @Ignore locally and run it alone with
+    // ./gradlew :shiv-core:test --tests me.oriley.shiv.ViewTraversalTest
+    @Ignore("Benchmark")
+    @Test
+    public void benchmarkRecursiveAgainstIterative() {
+        for (int depth : BENCHMARK_DEPTHS) {
+            benchmarkRecursiveAgainstIterative(depth);
+        }
+    }
+
+    private static void benchmarkRecursiveAgainstIterative(int depth) {
+        View root = createTree(depth, 4);
+        int[] ids = {depth * 1000 - 1000 + 4};
+
+        for (int i = 0; i < BENCHMARK_WARMUP; i++) {
+            walk(root, ids, false, null);
+            walk(root, ids, true, null);
+        }
+
+        // Same number of views visited at each depth
+        int iterations = BENCHMARK_VIEWS / (depth * 5);
+        long recursiveNanos = 0;
+        long iterativeNanos = 0;
+        int visited = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            visited = walk(root, ids, false, null);
+            recursiveNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals(visited, walk(root, ids, true, null));
+            iterativeNanos += System.nanoTime() - start;
+        }
+
+        long views = (long) visited * iterations;
+        System.out.println(String.format("Walk of %d views at depth %d: recursive %.2f ns/view, iterative %.2f ns/view",
+                visited, depth, (double) recursiveNanos / views, (double) iterativeNanos / views));
+    }
+
+    // Nested groups, each holding some leaves then the next level, with ids of level * 1000 + position
+    @NonNull
+    private static View createTree(int depth, int leaves) {
+        View child = null;
+        for (int level = depth - 1; level >= 0; level--) {
+            View[] children = new View[child != null ? leaves + 1 : leaves];
+            for (int i = 0; i < leaves; i++) {
+                children[i] = view(level * 1000 + i + 1);
+            }
+            if (child != null) {
+                children[leaves] = child;
+            }
+            child = group(level * 1000, children);
+        }
+        //noinspection ConstantConditions
+        return child;
+    }
+
+    private static int walk(@NonNull View root, @NonNull int[] ids, boolean iterative, List<Integer> order) {
+        ViewTraversal traversal = ViewTraversal.obtain(ids.length);
+        try {
+            if (iterative) {
+                View view = root;
+                while (view != null) {
+                    visit(view, ids, traversal, order);
+                    if (traversal.remaining == 0) {
+                        break;
+                    }
+                    if (view instanceof ViewGroup) {
+                        traversal.push((ViewGroup) view);
+                    }
+                    view = traversal.next();
+                }
+            } else {
+                walkRecursive(root, ids, traversal, order);
+            }
+            return traversal.visited;
+        } finally {
+            traversal.recycle();
+        }
+    }
+
+    private static void walkRecursive(@NonNull View view, @NonNull int[] ids, @NonNull ViewTraversal traversal,
+                                      List<Integer> order) {
+        visit(view, ids, traversal, order);
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            int size = viewGroup.getChildCount();
+            for (int i = 0; i < size && traversal.remaining > 0; i++) {
+                walkRecursive(viewGroup.getChildAt(i), ids, traversal, order);
+            }
+        }
+    }
+
+    private static void visit(@NonNull View view, @NonNull int[] ids, @NonNull ViewTraversal traversal,
+                              List<Integer> order) {
+        traversal.visited++;
+        if (order != null) {
+            order.add(view.getId());
+        }
+        int id = view.getId();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                traversal.bind(i);
+            }
+        }
+    }
+}
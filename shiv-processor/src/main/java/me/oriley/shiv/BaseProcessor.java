@@ -35,6 +35,7 @@ import java.util.Set;
 
 import static javax.tools.Diagnostic.Kind.ERROR;
 import static javax.tools.Diagnostic.Kind.NOTE;
+import static javax.tools.Diagnostic.Kind.WARNING;
 
 @SuppressWarnings({"WeakerAccess", "unused"})
 abstract class BaseProcessor extends AbstractProcessor {
@@ -135,6 +136,10 @@ abstract class BaseProcessor extends AbstractProcessor {
         print(message, NOTE, args);
     }
 
+    protected void warning(@NonNull String message, @Nullable Object... args) {
+        print(message, WARNING, args);
+    }
+
     protected void throwError(@NonNull String message, @NonNull Exception e, @Nullable Object... args) {
         error(message, args);
         throw new RuntimeException(e);
@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static me.oriley.shiv.ProcessorUtils.isNullable;
+
+/**
+ * Reads layout XML from the shiv.layoutDirs directories to find child index paths to bound views at compile time.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class LayoutAnalyzer {
+
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+    private static final String ATTR_ID = "id";
+    private static final String ATTR_LAYOUT = "layout";
+    private static final String TAG_INCLUDE = "include";
+    private static final String TAG_MERGE = "merge";
+    private static final String TAG_REQUEST_FOCUS = "requestFocus";
+    private static final String TAG_TAG = "tag";
+    private static final String ID_PREFIX = "@id/";
+    private static final String NEW_ID_PREFIX = "@+id/";
+    private static final String LAYOUT_PREFIX = "@layout/";
+    private static final String TYPE_ID = "id";
+    private static final String TYPE_LAYOUT = "layout";
+
+    @NonNull
+    private final ShivProcessor mProcessor;
+
+    @NonNull
+    private final List<File> mLayoutDirs;
+
+    @Nullable
+    private final String mRPackage;
+
+    @NonNull
+    private final Map<String, LayoutView> mLayouts = new HashMap<>();
+
+    // Resource names by value for each R inner class, read from its constant fields
+    @NonNull
+    private final Map<String, Map<Integer, String>> mResourceNames = new HashMap<>();
+
+
+    LayoutAnalyzer(@NonNull ShivProcessor processor, @NonNull List<File> layoutDirs, @Nullable String rPackage) {
+        mProcessor = processor;
+        mLayoutDirs = layoutDirs;
+        mRPackage = rPackage;
+    }
+
+
+    // Name of the R.id field with this value, or null if no R class visible to the host declares it as a constant
+    @Nullable
+    public String getIdName(@NonNull TypeElement hostType, int id) {
+        return getResourceName(hostType, TYPE_ID, id);
+    }
+
+    /**
+     * Paths from the binder's root to the first view in the host's layout with each id name, in pre-order as the walk
+     * would find them. Entries are null for ids not in the layout, and the result is null if the host has no
+     * analysable layout. Elements are only used to report views that are missing but not marked nullable.
+     */
+    @Nullable
+    public int[][] getPaths(@NonNull TypeElement hostType, boolean inflatedIntoRoot, @NonNull List<String> idNames,
+                            @NonNull List<Element> fields) throws ShivException {
+        BindLayout bindLayout = hostType.getAnnotation(BindLayout.class);
+        if (bindLayout == null) {
+            return null;
+        }
+
+        String layoutName = getResourceName(hostType, TYPE_LAYOUT, bindLayout.value());
+        if (layoutName == null) {
+            mProcessor.warning("Could not resolve layout %s for %s, skipping layout analysis", bindLayout.value(),
+                    hostType.getQualifiedName());
+            return null;
+        }
+        LayoutView layout = getLayout(layoutName, new HashSet<String>());
+        if (layout == null) {
+            mProcessor.warning("Layout %s for %s not found in layout directories", layoutName,
+                    hostType.getQualifiedName());
+            return null;
+        }
+
+        // Activities and view groups inflate into their root, other hosts bind from the inflated view itself
+        LayoutView root;
+        if (inflatedIntoRoot) {
+            root = new LayoutView(null, false, layout.merge ? layout.children : Collections.singletonList(layout));
+        } else if (layout.merge) {
+            mProcessor.warning("Layout %s for %s has a merge root, skipping layout analysis", layoutName,
+                    hostType.getQualifiedName());
+            return null;
+        } else {
+            root = layout;
+        }
+
+        BindRoot bindRoot = hostType.getAnnotation(BindRoot.class);
+        if (bindRoot != null) {
+            String rootName = getIdName(hostType, bindRoot.value());
+            root = rootName != null ? find(root, rootName) : null;
+            if (root == null) {
+                mProcessor.warning("Root %s for %s not found in layout %s", rootName != null ? rootName :
+                        bindRoot.value(), hostType.getQualifiedName(), layoutName);
+                return null;
+            }
+        }
+
+        int[][] paths = new int[idNames.size()][];
+        for (int i = 0; i < paths.length; i++) {
+            String idName = idNames.get(i);
+            List<Integer> path = new ArrayList<>();
+            if (idName != null && find(root, idName, path)) {
+                paths[i] = new int[path.size()];
+                for (int j = 0; j < paths[i].length; j++) {
+                    paths[i][j] = path.get(j);
+                }
+            } else if (!isNullable(fields.get(i))) {
+                Element field = fields.get(i);
+                mProcessor.warning("%s: view %s for %s.%s not found in layout %s", hostType.getQualifiedName(),
+                        idName != null ? idName : "id", field.getEnclosingElement().getSimpleName(),
+                        field.getSimpleName(), layoutName);
+            }
+        }
+        return paths;
+    }
+
+    @Nullable
+    private String getResourceName(@NonNull TypeElement hostType, @NonNull String type, int value) {
+        // Without an explicit R package, look in the host's package and then each of its parents
+        List<String> packages = new ArrayList<>();
+        if (mRPackage != null) {
+            packages.add(mRPackage);
+        } else {
+            String packageName = mProcessor.getPackageName(hostType);
+            while (!packageName.isEmpty()) {
+                packages.add(packageName);
+                int index = packageName.lastIndexOf('.');
+                packageName = index > 0 ? packageName.substring(0, index) : "";
+            }
+        }
+
+        for (String packageName : packages) {
+            String name = getResourceNames(packageName + ".R." + type).get(value);
+            if (name != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private Map<Integer, String> getResourceNames(@NonNull String className) {
+        Map<Integer, String> names = mResourceNames.get(className);
+        if (names != null) {
+            return names;
+        }
+
+        names = new HashMap<>();
+        TypeElement type = mProcessor.mElements.getTypeElement(className);
+        if (type != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Object value = field.getConstantValue();
+                if (value instanceof Integer) {
+                    names.put((Integer) value, field.getSimpleName().toString());
+                }
+            }
+        }
+        mResourceNames.put(className, names);
+        return names;
+    }
+
+    @Nullable
+    private LayoutView getLayout(@NonNull String name, @NonNull Set<String> including) throws ShivException {
+        if (mLayouts.containsKey(name)) {
+            return mLayouts.get(name);
+        } else if (!including.add(name)) {
+            throw new ShivException("Layout includes itself: " + name);
+        }
+
+        LayoutView layout = null;
+        for (File dir : mLayoutDirs) {
+            File file = new File(dir, name + ".xml");
+            if (file.isFile()) {
+                layout = parse(file, including);
+                break;
+            }
+        }
+
+        including.remove(name);
+        mLayouts.put(name, layout);
+        return layout;
+    }
+
+    @NonNull
+    private LayoutView parse(@NonNull File file, @NonNull Set<String> including) throws ShivException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            Document document = factory.newDocumentBuilder().parse(file);
+            org.w3c.dom.Element element = document.getDocumentElement();
+            return new LayoutView(getId(element), TAG_MERGE.equals(element.getTagName()),
+                    parseChildren(element, including));
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new ShivException("Could not parse layout " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Children as inflated, with includes replaced by their layout and merged layouts spliced into the parent
+    @NonNull
+    private List<LayoutView> parseChildren(@NonNull org.w3c.dom.Element parent, @NonNull Set<String> including)
+            throws ShivException {
+        List<LayoutView> children = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+
+            org.w3c.dom.Element element = (org.w3c.dom.Element) node;
+            String tag = element.getTagName();
+            if (TAG_REQUEST_FOCUS.equals(tag) || TAG_TAG.equals(tag)) {
+                // Not views, so not counted as children
+                continue;
+            } else if (!TAG_INCLUDE.equals(tag)) {
+                children.add(new LayoutView(getId(element), false, parseChildren(element, including)));
+                continue;
+            }
+
+            String layoutName = element.getAttribute(ATTR_LAYOUT);
+            LayoutView layout = layoutName.startsWith(LAYOUT_PREFIX) ?
+                    getLayout(layoutName.substring(LAYOUT_PREFIX.length()), including) : null;
+            String id = getId(element);
+            if (layout == null) {
+                // Unknown content, replayed paths past it are still checked at runtime
+                children.add(new LayoutView(id, false, Collections.<LayoutView>emptyList()));
+            } else if (layout.merge) {
+                children.addAll(layout.children);
+            } else {
+                children.add(new LayoutView(id != null ? id : layout.id, false, layout.children));
+            }
+        }
+        return children;
+    }
+
+    @Nullable
+    private static String getId(@NonNull org.w3c.dom.Element element) {
+        String id = element.getAttributeNS(ANDROID_NAMESPACE, ATTR_ID);
+        if (id.startsWith(NEW_ID_PREFIX)) {
+            return id.substring(NEW_ID_PREFIX.length());
+        } else if (id.startsWith(ID_PREFIX)) {
+            return id.substring(ID_PREFIX.length());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static LayoutView find(@NonNull LayoutView view, @NonNull String id) {
+        if (id.equals(view.id)) {
+            return view;
+        }
+        for (LayoutView child : view.children) {
+            LayoutView found = find(child, id);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static boolean find(@NonNull LayoutView view, @NonNull String id, @NonNull List<Integer> path) {
+        if (id.equals(view.id)) {
+            return true;
+        }
+        for (int i = 0; i < view.children.size(); i++) {
+            path.add(i);
+            if (find(view.children.get(i), id, path)) {
+                return true;
+            }
+            path.remove(path.size() - 1);
+        }
+        return false;
+    }
+
+    private static final class LayoutView {
+
+        @Nullable
+        final String id;
+
+        final boolean merge;
+
+        @NonNull
+        final List<LayoutView> children;
+
+
+        LayoutView(@Nullable String id, boolean merge, @NonNull List<LayoutView> children) {
+            this.id = id;
+            this.merge = merge;
+            this.children = children;
+        }
+    }
+}
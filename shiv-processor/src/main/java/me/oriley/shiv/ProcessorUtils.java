@@ -17,11 +17,14 @@
 package me.oriley.shiv;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
@@ -77,6 +80,36 @@ public final class ProcessorUtils {
         return isSubtypeOfType(element.asType(), type);
     }
 
+    public static boolean isLazyViewType(@NonNull TypeMirror typeMirror) {
+        if (typeMirror.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        DeclaredType declaredType = (DeclaredType) typeMirror;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        return declaredType.asElement().toString().equals(LazyView.class.getCanonicalName()) &&
+                typeArguments.size() == 1 && isSubtypeOfType(typeArguments.get(0), View.class);
+    }
+
+    // View type held by a View array or List field, or null if the field is neither
+    @Nullable
+    public static TypeMirror getViewsComponentType(@NonNull TypeMirror typeMirror) {
+        TypeMirror componentType;
+        if (typeMirror.getKind() == TypeKind.ARRAY) {
+            componentType = ((ArrayType) typeMirror).getComponentType();
+        } else if (typeMirror.getKind() == TypeKind.DECLARED) {
+            DeclaredType declaredType = (DeclaredType) typeMirror;
+            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+            if (!declaredType.asElement().toString().equals(List.class.getCanonicalName()) || typeArguments.size() != 1) {
+                return null;
+            }
+            componentType = typeArguments.get(0);
+        } else {
+            return null;
+        }
+        return componentType.getKind() == TypeKind.DECLARED && isSubtypeOfType(componentType, View.class) ?
+                componentType : null;
+    }
+
     public static boolean isSubtypeOfType(@NonNull TypeMirror typeMirror, @NonNull String type) {
         if (type.equals(typeMirror.toString())) {
             return true;
@@ -18,17 +18,18 @@ package me.oriley.shiv;
 
 import android.app.Activity;
 import android.app.Fragment;
+import android.graphics.drawable.Drawable;
 import android.os.Parcelable;
 import android.preference.Preference;
 import android.preference.PreferenceActivity;
 import android.preference.PreferenceFragment;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.preference.PreferenceFragmentCompat;
 import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
-import com.squareup.javapoet.JavaFile;
-import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.*;
 import me.oriley.shiv.holders.*;
 
 import javax.annotation.processing.Filer;
@@ -36,55 +37,232 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 import static me.oriley.shiv.ProcessorUtils.*;
 
 public final class ShivProcessor extends BaseProcessor {
 
+    private static final String OPTION_INDEX = "shiv.index";
+    private static final String OPTION_INDEX_INCLUDES = "shiv.indexIncludes";
+    private static final String OPTION_TRACE = "shiv.trace";
+    private static final String OPTION_STATIC_BINDERS = "shiv.staticBinders";
+    private static final String OPTION_VIEW_TRAVERSAL = "shiv.viewTraversal";
+    private static final String OPTION_LEARN_VIEW_PATHS = "shiv.learnViewPaths";
+    private static final String OPTION_R_PACKAGE = "shiv.rPackage";
+    private static final String OPTION_ID_DISPATCH = "shiv.idDispatch";
+    private static final String OPTION_LAYOUT_DIRS = "shiv.layoutDirs";
+    private static final String ID_DISPATCH_SWITCH = "switch";
+    private static final String ID_DISPATCH_TABLE = "table";
+    private static final String VIEW_TRAVERSAL_RECURSIVE = "recursive";
+    private static final String VIEW_TRAVERSAL_ITERATIVE = "iterative";
+    private static final String GET_BINDER = "getBinder";
+    private static final String HOST_CLASS = "hostClass";
+    private static final String INCLUDES = "INCLUDES";
+
     @NonNull
     private Filer mFiler;
 
+    @NonNull
+    private final Map<String, ClassName> mIndexedBinders = new TreeMap<>();
+
+    @Nullable
+    private String mIndexClassName;
+
+    @NonNull
+    private final List<String> mIndexIncludes = new ArrayList<>();
+
+    private boolean mTraceEnabled;
+
+    private boolean mStaticBindersEnabled;
+
+    private boolean mIterativeViewTraversal;
+
+    private boolean mLearnViewPathsEnabled;
+
+    private boolean mTableIdDispatch;
+
+    @Nullable
+    private String mRPackage;
+
+    @Nullable
+    private LayoutAnalyzer mLayoutAnalyzer;
+
     @Override
     public synchronized void init(ProcessingEnvironment env) {
         super.init(env);
         mFiler = env.getFiler();
         setTag(ShivProcessor.class.getSimpleName());
+
+        Map<String, String> options = env.getOptions();
+        mTraceEnabled = Boolean.parseBoolean(options.get(OPTION_TRACE));
+        mStaticBindersEnabled = Boolean.parseBoolean(options.get(OPTION_STATIC_BINDERS));
+        mLearnViewPathsEnabled = Boolean.parseBoolean(options.get(OPTION_LEARN_VIEW_PATHS));
+        mRPackage = options.get(OPTION_R_PACKAGE);
+        String idDispatch = options.get(OPTION_ID_DISPATCH);
+        if (idDispatch != null && !idDispatch.equals(ID_DISPATCH_SWITCH)) {
+            if (idDispatch.equals(ID_DISPATCH_TABLE)) {
+                mTableIdDispatch = true;
+            } else {
+                error("Invalid %s: %s, expected %s or %s", OPTION_ID_DISPATCH, idDispatch, ID_DISPATCH_SWITCH,
+                        ID_DISPATCH_TABLE);
+            }
+        }
+        String layoutDirs = options.get(OPTION_LAYOUT_DIRS);
+        if (layoutDirs != null) {
+            List<File> dirs = new ArrayList<>();
+            for (String dir : layoutDirs.split(File.pathSeparator)) {
+                if (!dir.trim().isEmpty()) {
+                    dirs.add(new File(dir.trim()));
+                }
+            }
+            mLayoutAnalyzer = new LayoutAnalyzer(this, dirs, mRPackage);
+        }
+        String viewTraversal = options.get(OPTION_VIEW_TRAVERSAL);
+        if (viewTraversal != null && !viewTraversal.equals(VIEW_TRAVERSAL_RECURSIVE)) {
+            if (viewTraversal.equals(VIEW_TRAVERSAL_ITERATIVE)) {
+                mIterativeViewTraversal = true;
+            } else {
+                error("Invalid %s: %s, expected %s or %s", OPTION_VIEW_TRAVERSAL, viewTraversal,
+                        VIEW_TRAVERSAL_RECURSIVE, VIEW_TRAVERSAL_ITERATIVE);
+            }
+        }
+        mIndexClassName = options.get(OPTION_INDEX);
+        String includes = options.get(OPTION_INDEX_INCLUDES);
+        if (includes != null) {
+            for (String include : includes.split(",")) {
+                if (!include.trim().isEmpty()) {
+                    mIndexIncludes.add(include.trim());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return new HashSet<>(Arrays.asList(OPTION_INDEX, OPTION_INDEX_INCLUDES, OPTION_TRACE,
+                OPTION_STATIC_BINDERS, OPTION_VIEW_TRAVERSAL, OPTION_LEARN_VIEW_PATHS,
+                OPTION_R_PACKAGE, OPTION_ID_DISPATCH, OPTION_LAYOUT_DIRS));
+    }
+
+    public boolean isTraceEnabled() {
+        return mTraceEnabled;
+    }
+
+    public boolean isStaticBindersEnabled() {
+        return mStaticBindersEnabled;
+    }
+
+    public boolean isIterativeViewTraversal() {
+        return mIterativeViewTraversal;
+    }
+
+    public boolean isLearnViewPathsEnabled() {
+        return mLearnViewPathsEnabled;
+    }
+
+    public boolean isTableIdDispatch() {
+        return mTableIdDispatch;
+    }
+
+    @Nullable
+    public LayoutAnalyzer getLayoutAnalyzer() {
+        return mLayoutAnalyzer;
+    }
+
+    // Only read for ids given by name, which are rejected unless the option is set
+    @NonNull
+    public String getRPackage() {
+        //noinspection ConstantConditions
+        return mRPackage;
+    }
+
+    // Value of a named id when its R.id field is a constant, as in application modules, otherwise null
+    @Nullable
+    public Integer getConstantId(@NonNull String idName) {
+        TypeElement type = mElements.getTypeElement(getRPackage() + ".R.id");
+        if (type == null) {
+            return null;
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getSimpleName().contentEquals(idName)) {
+                Object value = field.getConstantValue();
+                return value instanceof Integer ? (Integer) value : null;
+            }
+        }
+        return null;
     }
 
     @NonNull
     @Override
     protected Class[] getSupportedAnnotationClasses() {
-        return new Class[]{BindView.class, BindExtra.class, BindPreference.class, BindInstance.class,
-                BindNonConfigurationInstance.class, BindService.class};
+        return new Class[]{BindView.class, BindViews.class, BindExtra.class, BindPreference.class, BindInstance.class,
+                BindNonConfigurationInstance.class, BindService.class, BindRoot.class, BindLayout.class, OnClick.class,
+                OnLongClick.class, BindString.class, BindDimen.class, BindColor.class, BindInteger.class,
+                BindDrawable.class};
     }
 
     @Override
     public boolean process(@NonNull Set<? extends TypeElement> annotations, @NonNull RoundEnvironment env) {
         if (env.processingOver()) {
+            if (mIndexClassName != null) {
+                // Written once, after every round, so it covers binders from all rounds (and may be empty)
+                try {
+                    writeIndex();
+                } catch (ShivException e) {
+                    error(e.getMessage());
+                }
+            }
             return true;
         }
 
         try {
             final Map<TypeElement, BindingManager> bindings = new HashMap<>();
             collectBindings(env, bindings, BindView.class);
+            collectBindings(env, bindings, BindViews.class);
+            collectBindings(env, bindings, OnClick.class);
+            collectBindings(env, bindings, OnLongClick.class);
             collectBindings(env, bindings, BindExtra.class);
             collectBindings(env, bindings, BindPreference.class);
             collectBindings(env, bindings, BindInstance.class);
             collectBindings(env, bindings, BindNonConfigurationInstance.class);
             collectBindings(env, bindings, BindService.class);
+            collectBindings(env, bindings, BindString.class);
+            collectBindings(env, bindings, BindDimen.class);
+            collectBindings(env, bindings, BindColor.class);
+            collectBindings(env, bindings, BindInteger.class);
+            collectBindings(env, bindings, BindDrawable.class);
+            validateRoots(env);
+
+            if (bindings.isEmpty()) {
+                return false;
+            }
+
+            for (BindingManager manager : bindings.values()) {
+                BindingManager superBinding = findSuperBinding(manager.hostType, bindings);
+                if (superBinding != null) {
+                    manager.setSuperBinding(superBinding);
+                }
+            }
 
             for (BindingManager manager : bindings.values()) {
                 String packageName = getPackageName(manager.hostType);
-                writeToFile(packageName, manager.createBinder(this));
+                TypeSpec binder = manager.createBinder(this);
+                writeToFile(packageName, binder);
+                mIndexedBinders.put(mElements.getBinaryName(manager.hostType).toString(),
+                        ClassName.get(packageName, binder.name));
             }
         } catch (ShivException e) {
             error(e.getMessage());
@@ -94,20 +272,33 @@ public final class ShivProcessor extends BaseProcessor {
         return false;
     }
 
+    // Roots are read by the view binding holder, so only check they are on a class that binds views
+    private void validateRoots(@NonNull RoundEnvironment env) throws ShivException {
+        for (Element e : env.getElementsAnnotatedWith(BindRoot.class)) {
+            TypeElement type = (TypeElement) e;
+            if (!isSubtypeOfType(type, Activity.class) && !isSubtypeOfType(type, Fragment.class) &&
+                    !isSubtypeOfType(type, android.support.v4.app.Fragment.class) && !isSubtypeOfType(type, ViewGroup.class)) {
+                throw new ShivException("Invalid view root class: " + type.getSimpleName());
+            }
+        }
+    }
+
     private void collectBindings(@NonNull RoundEnvironment env,
                                  @NonNull Map<TypeElement, BindingManager> bindings,
                                  @NonNull Class<? extends Annotation> annotation) throws ShivException {
+        // Listener annotations are the only ones on methods
+        boolean listener = annotation == OnClick.class || annotation == OnLongClick.class;
         for (Element e : env.getElementsAnnotatedWith(annotation)) {
-            if (e.getKind() != ElementKind.FIELD) {
+            if (e.getKind() != (listener ? ElementKind.METHOD : ElementKind.FIELD)) {
                 throw new ShivException(e.getSimpleName() + " is annotated with @" + annotation.getName() +
-                        " but is not a field");
+                        " but is not a " + (listener ? "method" : "field"));
             }
 
             TypeMirror fieldType = e.asType();
             if (isPrivate(e)) {
-                throw new ShivException("Field must not be private: " + e.getSimpleName());
+                throw new ShivException((listener ? "Method" : "Field") + " must not be private: " + e.getSimpleName());
             } else if (isStatic(e)) {
-                throw new ShivException("Field must not be static: " + e.getSimpleName());
+                throw new ShivException((listener ? "Method" : "Field") + " must not be static: " + e.getSimpleName());
             }
 
             final TypeElement type = findEnclosingElement(e);
@@ -129,18 +320,63 @@ public final class ShivProcessor extends BaseProcessor {
             }
 
             if (annotation == BindView.class) {
-                if (!isSubtypeOfType(type, Activity.class) && !isSubtypeOfType(type, Fragment.class) &&
-                        !isSubtypeOfType(type, android.support.v4.app.Fragment.class) && !isSubtypeOfType(type, ViewGroup.class)) {
-                    throw new ShivException("Invalid view binding class: " + type.getSimpleName());
+                BindView bindView = e.getAnnotation(BindView.class);
+                // Any class can bind views from an explicit root, activities, fragments and view groups also from their own
+                if ((bindView.value() == 0) == bindView.idName().isEmpty()) {
+                    throw new ShivException("View binding must have exactly one of an id or an idName: " + e.getSimpleName());
+                } else if (!bindView.idName().isEmpty() && mRPackage == null) {
+                    throw new ShivException("View binding by idName requires the " + OPTION_R_PACKAGE +
+                            " processor option: " + e.getSimpleName());
+                } else if (bindView.lazy() && bindView.stub() != 0) {
+                    throw new ShivException("Lazy view binding can't also be bound from a stub: " + e.getSimpleName());
+                } else if (bindView.lazy()) {
+                    if (!isLazyViewType(fieldType)) {
+                        throw new ShivException("Lazy field must be a " + LazyView.class.getSimpleName() +
+                                " of a View type: " + e.getSimpleName());
+                    }
                 } else if (!isSubtypeOfType(fieldType, View.class)) {
                     throw new ShivException("Field must inherit from View type: " + e.getSimpleName());
                 }
+            } else if (annotation == BindViews.class) {
+                int[] ids = e.getAnnotation(BindViews.class).value();
+                if (e.getAnnotation(BindView.class) != null) {
+                    throw new ShivException("Field must not have both @BindView and @BindViews: " + e.getSimpleName());
+                } else if (ids.length == 0) {
+                    throw new ShivException("View group binding must have at least one id: " + e.getSimpleName());
+                } else if (getViewsComponentType(fieldType) == null) {
+                    throw new ShivException("Field must be an array or List of a View type: " + e.getSimpleName());
+                }
+                for (int id : ids) {
+                    if (id == 0) {
+                        throw new ShivException("View group binding has an invalid id: " + e.getSimpleName());
+                    }
+                }
+            } else if (listener) {
+                ExecutableElement method = (ExecutableElement) e;
+                int[] ids = annotation == OnClick.class ? e.getAnnotation(OnClick.class).value() :
+                        e.getAnnotation(OnLongClick.class).value();
+                TypeKind returnKind = method.getReturnType().getKind();
+                if (ids.length == 0) {
+                    throw new ShivException("Listener method must have at least one id: " + e.getSimpleName());
+                } else if (method.getParameters().size() > 1 || (method.getParameters().size() == 1 &&
+                        !isSubtypeOfType(method.getParameters().get(0).asType(), View.class))) {
+                    throw new ShivException("Listener method must take no arguments or a View: " + e.getSimpleName());
+                } else if (annotation == OnLongClick.class && returnKind != TypeKind.BOOLEAN && returnKind != TypeKind.VOID) {
+                    throw new ShivException("Long click method must return boolean or void: " + e.getSimpleName());
+                }
+                for (int id : ids) {
+                    if (id == 0) {
+                        throw new ShivException("Listener method has an invalid id: " + e.getSimpleName());
+                    }
+                }
             } else if (annotation == BindExtra.class) {
                 if (!isSubtypeOfType(type, Activity.class) && !isSubtypeOfType(type, Fragment.class) &&
                         !isSubtypeOfType(type, android.support.v4.app.Fragment.class)) {
                     throw new ShivException("Invalid extra binding class: " + type.getSimpleName());
                 } else if (!isValidBundleEntry(fieldType)) {
                     throw new ShivException("Extra field not suitable for bundle: " + e.getSimpleName());
+                } else if (!e.getAnnotation(BindExtra.class).defaultValue().isEmpty() && !fieldType.getKind().isPrimitive()) {
+                    throw new ShivException("Extra default value requires a primitive field: " + e.getSimpleName());
                 }
             } else if (annotation == BindPreference.class) {
                 if (isSubtypeOfType(type, PreferenceFragment.class) || isSubtypeOfType(type, PreferenceActivity.class)) {
@@ -174,6 +410,23 @@ public final class ShivProcessor extends BaseProcessor {
                         !isSubtypeOfType(type, View.class)) {
                     throw new ShivException("Invalid service binding class: " + type.getSimpleName());
                 }
+            } else if (isResourceAnnotation(annotation)) {
+                TypeKind kind = fieldType.getKind();
+                if (!isSubtypeOfType(type, Activity.class) && !isSubtypeOfType(type, Fragment.class) &&
+                        !isSubtypeOfType(type, android.support.v4.app.Fragment.class) &&
+                        !isSubtypeOfType(type, View.class)) {
+                    throw new ShivException("Invalid resource binding class: " + type.getSimpleName());
+                } else if (getResourceAnnotationCount(e) > 1) {
+                    throw new ShivException("Field must have only one resource binding: " + e.getSimpleName());
+                } else if (annotation == BindString.class && !String.class.getCanonicalName().equals(fieldType.toString())) {
+                    throw new ShivException("String resource field must be a String: " + e.getSimpleName());
+                } else if (annotation == BindDimen.class && kind != TypeKind.INT && kind != TypeKind.FLOAT) {
+                    throw new ShivException("Dimension resource field must be an int or float: " + e.getSimpleName());
+                } else if ((annotation == BindColor.class || annotation == BindInteger.class) && kind != TypeKind.INT) {
+                    throw new ShivException("Color and integer resource fields must be an int: " + e.getSimpleName());
+                } else if (annotation == BindDrawable.class && !isSubtypeOfType(fieldType, Drawable.class)) {
+                    throw new ShivException("Drawable resource field must inherit from Drawable: " + e.getSimpleName());
+                }
             } else {
                 throw new ShivException("Unrecognised annotation: " + annotation);
             }
@@ -188,12 +441,92 @@ public final class ShivProcessor extends BaseProcessor {
         }
     }
 
+    @Nullable
+    private BindingManager findSuperBinding(@NonNull TypeElement type, @NonNull Map<TypeElement, BindingManager> bindings) {
+        TypeMirror superType = type.getSuperclass();
+        while (superType.getKind() == TypeKind.DECLARED) {
+            TypeElement superElement = (TypeElement) ((DeclaredType) superType).asElement();
+            BindingManager manager = bindings.get(superElement);
+            if (manager != null) {
+                // Inherited fields are only accessible to the generated binder from within the same package,
+                // otherwise the runtime will bind each class in the hierarchy separately
+                return getPackageName(superElement).equals(getPackageName(type)) ? manager : null;
+            }
+            superType = superElement.getSuperclass();
+        }
+        return null;
+    }
+
+    private static boolean isResourceAnnotation(@NonNull Class<? extends Annotation> annotation) {
+        return annotation == BindString.class || annotation == BindDimen.class || annotation == BindColor.class ||
+                annotation == BindInteger.class || annotation == BindDrawable.class;
+    }
+
+    private static int getResourceAnnotationCount(@NonNull Element e) {
+        int count = 0;
+        for (Class<? extends Annotation> annotation : Arrays.asList(BindString.class, BindDimen.class, BindColor.class,
+                BindInteger.class, BindDrawable.class)) {
+            if (e.getAnnotation(annotation) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private boolean isValidBundleEntry(@NonNull TypeMirror fieldType) throws ShivException {
         return isAssignable(fieldType, CharSequence.class) || isAssignable(fieldType, Serializable.class) ||
                 isAssignable(fieldType, Parcelable.class) || SparseArray.class.getCanonicalName().equals(erasedType(fieldType)) ||
                 ArrayList.class.getCanonicalName().equals(erasedType(fieldType));
     }
 
+    private void writeIndex() throws ShivException {
+        int lastDot = mIndexClassName.lastIndexOf('.');
+        String packageName = lastDot >= 0 ? mIndexClassName.substring(0, lastDot) : "";
+        String className = mIndexClassName.substring(lastDot + 1);
+
+        TypeSpec.Builder typeSpecBuilder = TypeSpec.classBuilder(className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(BinderIndex.class);
+
+        CodeBlock.Builder builder = CodeBlock.builder()
+                .beginControlFlow("switch ($N.getName())", HOST_CLASS);
+        for (Map.Entry<String, ClassName> entry : mIndexedBinders.entrySet()) {
+            builder.add("case $S:\n", entry.getKey())
+                    .add("    return new $T();\n", entry.getValue());
+        }
+        builder.endControlFlow();
+
+        if (!mIndexIncludes.isEmpty()) {
+            CodeBlock.Builder includes = CodeBlock.builder().add("{");
+            for (int i = 0; i < mIndexIncludes.size(); i++) {
+                includes.add(i > 0 ? ", new $T()" : "new $T()", ClassName.bestGuess(mIndexIncludes.get(i)));
+            }
+            typeSpecBuilder.addField(FieldSpec.builder(BinderIndex[].class, INCLUDES, Modifier.PRIVATE, Modifier.STATIC,
+                    Modifier.FINAL).initializer(includes.add("}").build()).build());
+
+            builder.beginControlFlow("for ($T index : $N)", BinderIndex.class, INCLUDES)
+                    .add("$T binder = index.$N($N);\n", Binder.class, GET_BINDER, HOST_CLASS)
+                    .beginControlFlow("if (binder != null)")
+                    .add("return binder;\n")
+                    .endControlFlow()
+                    .endControlFlow();
+        }
+        builder.add("return null;\n");
+
+        typeSpecBuilder.addMethod(MethodSpec.methodBuilder(GET_BINDER)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addAnnotation(Nullable.class)
+                .addParameter(ParameterSpec.builder(ParameterizedTypeName.get(ClassName.get(Class.class),
+                        WildcardTypeName.subtypeOf(Object.class)).annotated(AnnotationSpec.builder(NonNull.class).build()),
+                        HOST_CLASS, Modifier.FINAL).build())
+                .returns(Binder.class)
+                .addCode(builder.build())
+                .build());
+
+        writeToFile(packageName, typeSpecBuilder.build());
+    }
+
     @NonNull
     private JavaFile writeToFile(@NonNull String packageName, @NonNull TypeSpec spec) throws ShivException {
         final JavaFile file = JavaFile.builder(packageName, spec)
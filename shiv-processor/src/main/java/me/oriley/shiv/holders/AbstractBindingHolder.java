@@ -16,17 +16,32 @@
 
 package me.oriley.shiv.holders;
 
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.os.Trace;
 import android.support.annotation.NonNull;
-import com.squareup.javapoet.TypeSpec;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import com.squareup.javapoet.*;
 import me.oriley.shiv.ShivException;
 import me.oriley.shiv.ShivProcessor;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static me.oriley.shiv.ProcessorUtils.isSubtypeOfType;
+
 abstract class AbstractBindingHolder {
 
     static final String OBJECT = "object";
@@ -34,8 +49,12 @@ abstract class AbstractBindingHolder {
     static final String EXTRA = "extra";
     static final String FIELD_HOST = "fieldHost";
     static final String KEY_INSTANCE_PREFIX = "SHIV_KEY_INSTANCE_";
+    static final String KEY_EXTRA_PREFIX = "SHIV_KEY_EXTRA_";
     static final String UNCHECKED = "unchecked";
 
+    private static final String TRACE_PREFIX = "Shiv:";
+    private static final int MAX_TRACE_SECTION_LENGTH = 127;
+
     @NonNull
     final List<Element> mElements = new ArrayList<>();
 
@@ -45,6 +64,12 @@ abstract class AbstractBindingHolder {
     @NonNull
     final ShivProcessor mProcessor;
 
+    // Superclass binder this binder extends, and the operations it already generates
+    @Nullable
+    private ClassName mSuperBinder;
+
+    int mInheritedOperations;
+
 
     AbstractBindingHolder(@NonNull ShivProcessor processor,
                           @NonNull TypeElement hostType) {
@@ -57,8 +82,253 @@ abstract class AbstractBindingHolder {
         mElements.add(element);
     }
 
+    void setSuperBinder(@NonNull ClassName superBinder, int operations) {
+        mSuperBinder = superBinder;
+        mInheritedOperations = operations;
+    }
+
+    boolean inherits(int operation) {
+        return (mInheritedOperations & operation) != 0;
+    }
+
+    boolean isStatic() {
+        return mProcessor.isStaticBindersEnabled();
+    }
+
+    // Starts a method body, chaining to the superclass binder first if it also handles the operation
+    @NonNull
+    CodeBlock.Builder createCodeBuilder(int operation, @NonNull String methodName, @NonNull String... args) {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        if (inherits(operation)) {
+            StringBuilder sb = new StringBuilder();
+            for (String arg : args) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                // Static entry points receive the typed host directly
+                sb.append(isStatic() && OBJECT.equals(arg) ? FIELD_HOST : arg);
+            }
+            if (isStatic()) {
+                builder.add("$T.$N($L);\n", mSuperBinder, methodName, sb.toString());
+            } else {
+                builder.add("super.$N($L);\n", methodName, sb.toString());
+            }
+        }
+        return builder;
+    }
+
+    // Declares the typed host local, which static entry points already receive as their parameter
+    @NonNull
+    CodeBlock castHost() {
+        if (isStatic()) {
+            return CodeBlock.builder().build();
+        }
+        return CodeBlock.builder().add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT).build();
+    }
+
+    // Adds the public binder method for an operation. With the shiv.staticBinders processor option the body moves to
+    // a public static method taking the host type, so callers can bind without runtime dispatch or casts.
+    void addOperationMethod(@NonNull TypeSpec.Builder typeSpecBuilder, @NonNull String methodName,
+                            @NonNull CodeBlock body, @NonNull ParameterSpec... params) {
+        addOperationMethod(typeSpecBuilder, methodName, body, true, params);
+    }
+
+    // As above for an overload that only gathers arguments for another operation method, which traces the call
+    void addDelegatingOperationMethod(@NonNull TypeSpec.Builder typeSpecBuilder, @NonNull String methodName,
+                                      @NonNull CodeBlock body, @NonNull ParameterSpec... params) {
+        addOperationMethod(typeSpecBuilder, methodName, body, false, params);
+    }
+
+    private void addOperationMethod(@NonNull TypeSpec.Builder typeSpecBuilder, @NonNull String methodName,
+                                    @NonNull CodeBlock body, boolean trace, @NonNull ParameterSpec... params) {
+        CodeBlock code = trace ? traced(methodName, body) : body;
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(ParameterSpec.builder(TypeName.get(Object.class)
+                        .annotated(AnnotationSpec.builder(NonNull.class).build()), OBJECT, Modifier.FINAL)
+                        .build())
+                .addParameters(Arrays.asList(params));
+
+        if (!isStatic()) {
+            typeSpecBuilder.addMethod(methodBuilder.addCode(code).build());
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (ParameterSpec param : params) {
+            sb.append(", ").append(param.name);
+        }
+        methodBuilder.addStatement("$N(($T) $N$L)", methodName, mHostType, OBJECT, sb.toString());
+
+        MethodSpec staticMethod = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ParameterSpec.builder(TypeName.get(mHostType.asType())
+                        .annotated(AnnotationSpec.builder(NonNull.class).build()), FIELD_HOST, Modifier.FINAL)
+                        .build())
+                .addParameters(Arrays.asList(params))
+                .addCode(code)
+                .build();
+
+        typeSpecBuilder.addMethod(staticMethod).addMethod(methodBuilder.build());
+    }
+
+    // Wraps a public binder method body in a trace section when enabled by the shiv.trace processor option
+    @NonNull
+    CodeBlock traced(@NonNull String methodName, @NonNull CodeBlock body) {
+        if (!mProcessor.isTraceEnabled()) {
+            return body;
+        }
+
+        String section = TRACE_PREFIX + mHostType.getSimpleName() + "." + methodName;
+        if (section.length() > MAX_TRACE_SECTION_LENGTH) {
+            section = section.substring(0, MAX_TRACE_SECTION_LENGTH);
+        }
+
+        return CodeBlock.builder()
+                .beginControlFlow("if ($T.VERSION.SDK_INT >= $T.VERSION_CODES.JELLY_BEAN_MR2)", Build.class, Build.class)
+                .add("$T.beginSection($S);\n", Trace.class, section)
+                .endControlFlow()
+                .beginControlFlow("try")
+                .add(body)
+                .nextControlFlow("finally")
+                .beginControlFlow("if ($T.VERSION.SDK_INT >= $T.VERSION_CODES.JELLY_BEAN_MR2)", Build.class, Build.class)
+                .add("$T.endSection();\n", Trace.class)
+                .endControlFlow()
+                .endControlFlow()
+                .build();
+    }
+
+    // Type name shared by the typed Bundle put and get methods for a field, empty for the untyped ones. Arrays, lists
+    // and sparse arrays of other types have no typed pair, and are rejected when strict, otherwise give null
+    @Nullable
+    String getBundleTypeSuffix(@NonNull Element element, boolean strict) throws ShivException {
+        TypeMirror type = element.asType();
+        String erasedName = mProcessor.erasedType(type);
+
+        if (type.getKind().isPrimitive()) {
+            TypeKind kind = type.getKind();
+
+            if (kind == TypeKind.BOOLEAN) {
+                return "Boolean";
+            } else if (kind == TypeKind.INT) {
+                return "Int";
+            } else if (kind == TypeKind.FLOAT) {
+                return "Float";
+            } else if (kind == TypeKind.CHAR) {
+                return "Char";
+            } else if (kind == TypeKind.DOUBLE) {
+                return "Double";
+            } else if (kind == TypeKind.SHORT) {
+                return "Short";
+            } else if (kind == TypeKind.BYTE) {
+                return "Byte";
+            } else if (kind == TypeKind.LONG) {
+                return "Long";
+            } else {
+                throw new ShivException("Invalid primitive type: " + type);
+            }
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            ArrayType arrayType = (ArrayType) type;
+            TypeMirror componentType = arrayType.getComponentType();
+
+            if (componentType.getKind().isPrimitive()) {
+                TypeKind kind = componentType.getKind();
+
+                if (kind == TypeKind.BOOLEAN) {
+                    return "BooleanArray";
+                } else if (kind == TypeKind.INT) {
+                    return "IntArray";
+                } else if (kind == TypeKind.FLOAT) {
+                    return "FloatArray";
+                } else if (kind == TypeKind.CHAR) {
+                    return "CharArray";
+                } else if (kind == TypeKind.DOUBLE) {
+                    return "DoubleArray";
+                } else if (kind == TypeKind.SHORT) {
+                    return "ShortArray";
+                } else if (kind == TypeKind.BYTE) {
+                    return "ByteArray";
+                } else if (kind == TypeKind.LONG) {
+                    return "LongArray";
+                } else {
+                    throw new ShivException("Invalid primitive array type: " + arrayType);
+                }
+            } else if (mProcessor.isAssignable(componentType, Parcelable.class)) {
+                return "ParcelableArray";
+            } else if (mProcessor.isAssignable(componentType, CharSequence.class)) {
+                return "CharSequenceArray";
+            } else if (mProcessor.isAssignable(componentType, String.class)) {
+                return "StringArray";
+            } else if (strict) {
+                throw new ShivException("Invalid array type: " + type);
+            } else {
+                return null;
+            }
+        } else if (ArrayList.class.getCanonicalName().equals(erasedName)) {
+            DeclaredType declaredType = (DeclaredType) type;
+            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+            if (typeArguments.size() != 1) {
+                if (strict) {
+                    throw new ShivException("Generic type not specified for list: " + element);
+                }
+                return null;
+            }
+            TypeMirror listType = typeArguments.get(0);
+
+            if (isSubtypeOfType(listType, Parcelable.class)) {
+                return "ParcelableArrayList";
+            } else if (isSubtypeOfType(listType, String.class)) {
+                return "StringArrayList";
+            } else if (isSubtypeOfType(listType, CharSequence.class)) {
+                return "CharSequenceArrayList";
+            } else if (isSubtypeOfType(listType, Integer.class)) {
+                return "IntegerArrayList";
+            } else if (strict) {
+                throw new ShivException("Invalid array list type: " + listType);
+            } else {
+                return null;
+            }
+        } else if (SparseArray.class.getCanonicalName().equals(erasedName)) {
+            DeclaredType declaredType = (DeclaredType) type;
+            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+            if (typeArguments.size() != 1) {
+                if (strict) {
+                    throw new ShivException("Generic type not specified for sparse array: " + element);
+                }
+                return null;
+            }
+            TypeMirror sparseArrayType = typeArguments.get(0);
+
+            if (isSubtypeOfType(sparseArrayType, Parcelable.class)) {
+                return "SparseParcelableArray";
+            } else if (strict) {
+                throw new ShivException("Invalid sparse array type: " + sparseArrayType);
+            } else {
+                return null;
+            }
+        } else {
+            if (mProcessor.isAssignable(type, CharSequence.class)) {
+                return "CharSequence";
+            } else if (mProcessor.isAssignable(type, Bundle.class)) {
+                return "Bundle";
+            } else if (mProcessor.isAssignable(type, String.class)) {
+                return "String";
+            } else if (mProcessor.isAssignable(type, Parcelable.class)) {
+                return "Parcelable";
+            } else if (mProcessor.isAssignable(type, Serializable.class)) {
+                return "Serializable";
+            } else {
+                return "";
+            }
+        }
+    }
+
     abstract void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException;
 
+    // Operations (as Binder flags) generated by this holder
+    abstract int getOperations();
+
     @NonNull
     List<String> getSuppressedWarnings() {
         return Collections.emptyList();
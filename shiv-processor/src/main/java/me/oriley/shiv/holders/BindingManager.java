@@ -17,7 +17,11 @@
 package me.oriley.shiv.holders;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeSpec;
 import me.oriley.shiv.*;
 
@@ -30,6 +34,12 @@ import java.util.*;
 public final class BindingManager {
 
     private static final String VALUE = "value";
+    private static final String GET_OPERATIONS = "getOperations";
+
+    // Indexed by bit position of the matching Binder flag
+    private static final String[] OPERATION_NAMES = {"BIND_VIEWS", "UNBIND_VIEWS", "BIND_EXTRAS", "BIND_PREFERENCES",
+            "UNBIND_PREFERENCES", "BIND_SERVICES", "SAVE_INSTANCE", "RESTORE_INSTANCE", "SAVE_NON_CONFIGURATION_INSTANCE",
+            "RESTORE_NON_CONFIGURATION_INSTANCE", "BIND_RESOURCES"};
 
     @NonNull
     private final ViewBindingHolder mViewBindingHolder;
@@ -49,31 +59,47 @@ public final class BindingManager {
     @NonNull
     private final ServiceBindingHolder mServiceBindingHolder;
 
+    @NonNull
+    private final ResourceBindingHolder mResourceBindingHolder;
+
     @NonNull
     private final List<AbstractBindingHolder> mBindingHolders = new ArrayList<>();
 
     @NonNull
     public final TypeElement hostType;
 
+    @NonNull
+    private final ClassName mBinderClassName;
+
+    @Nullable
+    private BindingManager mSuperBinding;
+
+    private boolean mHasSubBindings;
+
 
     public BindingManager(@NonNull ShivProcessor processor, @NonNull TypeElement hostType) {
         this.hostType = hostType;
+        String packageName = processor.getPackageName(hostType);
+        mBinderClassName = ClassName.get(packageName, processor.getClassName(hostType, packageName) + Binder.CLASS_SUFFIX);
+
         mViewBindingHolder = new ViewBindingHolder(processor, hostType);
         mPreferenceBindingHolder = new PreferenceBindingHolder(processor, hostType);
         mExtraBindingHolder = new ExtraBindingHolder(processor, hostType);
         mInstanceBindingHolder = new InstanceBindingHolder(processor, hostType);
         mNonConfigurationInstanceBindingHolder = new NonConfigurationInstanceBindingHolder(processor, hostType);
         mServiceBindingHolder = new ServiceBindingHolder(processor, hostType);
+        mResourceBindingHolder = new ResourceBindingHolder(processor, hostType);
 
         // Create list
         Collections.addAll(mBindingHolders, mViewBindingHolder, mPreferenceBindingHolder,
                 mExtraBindingHolder, mInstanceBindingHolder, mNonConfigurationInstanceBindingHolder,
-                mServiceBindingHolder);
+                mServiceBindingHolder, mResourceBindingHolder);
     }
 
 
     public void addBinding(@NonNull Class<? extends Annotation> annotation, @NonNull Element element) throws ShivException {
-        if (annotation == BindView.class) {
+        if (annotation == BindView.class || annotation == BindViews.class || annotation == OnClick.class ||
+                annotation == OnLongClick.class) {
             mViewBindingHolder.addElement(element);
         } else if (annotation == BindExtra.class) {
             mExtraBindingHolder.addElement(element);
@@ -85,22 +111,69 @@ public final class BindingManager {
             mNonConfigurationInstanceBindingHolder.addElement(element);
         } else if (annotation == BindService.class) {
             mServiceBindingHolder.addElement(element);
+        } else if (annotation == BindString.class || annotation == BindDimen.class || annotation == BindColor.class ||
+                annotation == BindInteger.class || annotation == BindDrawable.class) {
+            mResourceBindingHolder.addElement(element);
         } else {
             throw new ShivException("Invalid annotation: " + annotation);
         }
     }
 
+    // Binder for the nearest annotated superclass, which the generated binder will extend and chain to
+    public void setSuperBinding(@NonNull BindingManager superBinding) {
+        mSuperBinding = superBinding;
+        superBinding.mHasSubBindings = true;
+    }
+
+    private int getOperations() {
+        int operations = mSuperBinding != null ? mSuperBinding.getOperations() : 0;
+        for (AbstractBindingHolder holder : mBindingHolders) {
+            operations |= holder.getOperations();
+        }
+        return operations;
+    }
+
     @NonNull
-    public TypeSpec createBinder(@NonNull ShivProcessor processor) throws ShivException {
+    private List<Element> getViewElements() {
+        List<Element> elements = new ArrayList<>();
+        if (mSuperBinding != null) {
+            elements.addAll(mSuperBinding.getViewElements());
+        }
+        elements.addAll(mViewBindingHolder.mElements);
+        return elements;
+    }
 
-        // Class type
-        String packageName = processor.getPackageName(hostType);
-        String className = processor.getClassName(hostType, packageName);
+    @NonNull
+    private List<Element> getExtraElements() {
+        List<Element> elements = new ArrayList<>();
+        if (mSuperBinding != null) {
+            elements.addAll(mSuperBinding.getExtraElements());
+        }
+        elements.addAll(mExtraBindingHolder.mElements);
+        return elements;
+    }
+
+    @NonNull
+    public TypeSpec createBinder(@NonNull ShivProcessor processor) throws ShivException {
 
         // Class builder
-        TypeSpec.Builder typeSpecBuilder = TypeSpec.classBuilder(className + Binder.CLASS_SUFFIX)
-                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-                .superclass(Binder.class);
+        TypeSpec.Builder typeSpecBuilder = TypeSpec.classBuilder(mBinderClassName.simpleName())
+                .addModifiers(Modifier.PUBLIC);
+
+        if (!mHasSubBindings) {
+            typeSpecBuilder.addModifiers(Modifier.FINAL);
+        }
+
+        if (mSuperBinding != null) {
+            typeSpecBuilder.superclass(mSuperBinding.mBinderClassName);
+            mViewBindingHolder.setInheritedElements(mSuperBinding.getViewElements());
+            mExtraBindingHolder.setInheritedElements(mSuperBinding.getExtraElements());
+            for (AbstractBindingHolder holder : mBindingHolders) {
+                holder.setSuperBinder(mSuperBinding.mBinderClassName, mSuperBinding.getOperations());
+            }
+        } else {
+            typeSpecBuilder.superclass(Binder.class);
+        }
 
         Set<String> suppressedWarnings = new HashSet<>();
         for (AbstractBindingHolder holder : mBindingHolders) {
@@ -108,6 +181,14 @@ public final class BindingManager {
             holder.addBindingsToClass(typeSpecBuilder);
         }
 
+        // Report generated operations (including inherited) so the runtime can skip no-op calls
+        typeSpecBuilder.addMethod(MethodSpec.methodBuilder(GET_OPERATIONS)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .returns(int.class)
+                .addCode(CodeBlock.builder().add("return $L;\n", getOperationsExpression(getOperations())).build())
+                .build());
+
         if (suppressedWarnings.size() > 0) {
             StringBuilder sb = new StringBuilder();
             boolean first = true;
@@ -127,4 +208,22 @@ public final class BindingManager {
 
         return typeSpecBuilder.build();
     }
+
+    @NonNull
+    private static String getOperationsExpression(int operations) {
+        if (operations == 0) {
+            return "0";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < OPERATION_NAMES.length; i++) {
+            if ((operations & (1 << i)) != 0) {
+                if (sb.length() > 0) {
+                    sb.append(" | ");
+                }
+                sb.append(OPERATION_NAMES[i]);
+            }
+        }
+        return sb.toString();
+    }
 }
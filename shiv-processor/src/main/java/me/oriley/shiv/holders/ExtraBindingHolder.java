@@ -18,15 +18,23 @@ package me.oriley.shiv.holders;
 
 import android.app.Activity;
 import android.app.Fragment;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import com.squareup.javapoet.*;
 import me.oriley.shiv.*;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static me.oriley.shiv.ProcessorUtils.isNullable;
 
@@ -34,6 +42,17 @@ final class ExtraBindingHolder extends AbstractBindingHolder {
 
     private static final String BIND_EXTRAS = "bindExtras";
     private static final String INTENT = "intent";
+    private static final String CONTEXT = "context";
+    private static final String BUILD = "build";
+    private static final String INTENT_BUILDER = "IntentBuilder";
+    private static final String ARGUMENTS_BUILDER = "ArgumentsBuilder";
+    private static final String EXTRAS = "mExtras";
+    private static final String GET_EXTRAS = "getExtras";
+    private static final String BUILT = "built";
+
+    // Extras of superclasses sharing this binder's chain, also set by the generated builder
+    @NonNull
+    private final List<Element> mInheritedElements = new ArrayList<>();
 
     private boolean mHasNonOptionalExtra;
 
@@ -46,39 +65,97 @@ final class ExtraBindingHolder extends AbstractBindingHolder {
     @Override
     void addElement(@NonNull Element element) {
         super.addElement(element);
-        if (!element.getAnnotation(BindExtra.class).optional()) {
+        BindExtra bindExtra = element.getAnnotation(BindExtra.class);
+        if (!bindExtra.optional() && bindExtra.defaultValue().isEmpty()) {
             mHasNonOptionalExtra = true;
         }
     }
 
+    void setInheritedElements(@NonNull List<Element> elements) {
+        mInheritedElements.clear();
+        mInheritedElements.addAll(elements);
+    }
+
+    @Override
+    int getOperations() {
+        return mElements.isEmpty() ? 0 : Binder.BIND_EXTRAS;
+    }
+
     @Override
     void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException {
-        if (mElements.isEmpty()) {
-            // Nothing to bind
-            return;
+        checkKeyNames();
+        if (!mElements.isEmpty()) {
+            // Keys are public so hand-written call sites can share them with the builder
+            for (Element element : mElements) {
+                typeSpecBuilder.addField(FieldSpec.builder(String.class, getKeyName(element), Modifier.PUBLIC,
+                        Modifier.STATIC, Modifier.FINAL).initializer("$S", element.getAnnotation(BindExtra.class).value())
+                        .build());
+            }
+
+            // Create bindExtras method
+            addOperationMethod(typeSpecBuilder, BIND_EXTRAS, generateBindExtrasMethod());
         }
 
-        // Type parameter
-        ParameterSpec param = ParameterSpec.builder(TypeName.get(Object.class)
-                .annotated(AnnotationSpec.builder(NonNull.class).build()), OBJECT, Modifier.FINAL)
-                .build();
+        if ((!mElements.isEmpty() || !mInheritedElements.isEmpty()) && !mHostType.getModifiers().contains(Modifier.ABSTRACT) &&
+                canPutAllExtras()) {
+            typeSpecBuilder.addType(generateBuilderClass());
+        }
+    }
 
-        // Create bindExtras method
-        MethodSpec bindMethod = MethodSpec.methodBuilder(BIND_EXTRAS)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generateBindExtrasMethod())
-                .build();
+    // Key constants and builder setters are named after the field, so a field sharing its name with an inherited extra
+    // would hide the superclass key and give the builder two setters of that name. Keys are upper case, so names that
+    // only differ by case conflict too
+    private void checkKeyNames() throws ShivException {
+        Map<String, Element> keyNames = new HashMap<>();
+        for (Element element : mInheritedElements) {
+            keyNames.put(getKeyName(element), element);
+        }
+        for (Element element : mElements) {
+            Element existing = keyNames.put(getKeyName(element), element);
+            if (existing != null) {
+                throw new ShivException("Extra field " + element.getEnclosingElement() + "." + element.getSimpleName() +
+                        " conflicts with " + existing.getEnclosingElement() + "." + existing.getSimpleName() +
+                        ", extra field names in a class hierarchy must differ other than by case");
+            }
+        }
+    }
 
-        typeSpecBuilder.addMethod(bindMethod);
+    // Extras without a typed Bundle pair are read with the untyped get, and put as Serializable where they can be
+    @Nullable
+    private String getPutSuffix(@NonNull Element element) throws ShivException {
+        String suffix = getBundleTypeSuffix(element, false);
+        if (suffix == null && mProcessor.isAssignable(element.asType(), Serializable.class)) {
+            return "Serializable";
+        }
+        return suffix == null || suffix.isEmpty() ? null : suffix;
+    }
+
+    // A builder is only generated if every extra has a put method, so none can be left unset
+    private boolean canPutAllExtras() throws ShivException {
+        for (Element element : mInheritedElements) {
+            if (getPutSuffix(element) == null) {
+                return false;
+            }
+        }
+        for (Element element : mElements) {
+            if (getPutSuffix(element) == null) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @NonNull
     private CodeBlock generateBindExtrasMethod() throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT)
-                .add("$T $N;\n", Object.class, EXTRA);
+        CodeBlock.Builder builder = createCodeBuilder(Binder.BIND_EXTRAS, BIND_EXTRAS, OBJECT)
+                .add(castHost());
+
+        for (Element element : mElements) {
+            if (!element.asType().getKind().isPrimitive()) {
+                builder.add("$T $N;\n", Object.class, EXTRA);
+                break;
+            }
+        }
 
         if (ProcessorUtils.isSubtypeOfType(mHostType, Activity.class)) {
             builder.add("$T $N = $N.getIntent();\n", Intent.class, INTENT, FIELD_HOST);
@@ -95,14 +172,48 @@ final class ExtraBindingHolder extends AbstractBindingHolder {
             builder.add("throw new $T(\"$T contains non-optional extra and bundle was null\");\n", IllegalStateException.class,
                     mHostType);
         } else {
+            // Missing extras still take their defaults
+            for (Element element : mElements) {
+                String defaultValue = element.getAnnotation(BindExtra.class).defaultValue();
+                if (!defaultValue.isEmpty()) {
+                    builder.add("$N.$N = ", FIELD_HOST, element.getSimpleName())
+                            .add(getDefaultValue(element, defaultValue))
+                            .add(";\n");
+                }
+            }
             builder.add("return;\n");
         }
         builder.endControlFlow();
 
         for (Element element : mElements) {
             BindExtra bindExtra = element.getAnnotation(BindExtra.class);
+            String suffix = getBundleTypeSuffix(element, false);
+            if (suffix == null) {
+                suffix = "";
+            }
 
-            builder.add("$N = $N.get($S);\n", EXTRA, BUNDLE, bindExtra.value());
+            if (element.asType().getKind().isPrimitive()) {
+                // Typed getters with a default never box, and leave the field alone when an optional extra is missing
+                if (!bindExtra.defaultValue().isEmpty()) {
+                    builder.add("$N.$N = $N.get$L($N, ", FIELD_HOST, element.getSimpleName(), BUNDLE, suffix,
+                            getKeyName(element))
+                            .add(getDefaultValue(element, bindExtra.defaultValue()))
+                            .add(");\n");
+                } else if (bindExtra.optional()) {
+                    builder.add("$N.$N = $N.get$L($N, $N.$N);\n", FIELD_HOST, element.getSimpleName(), BUNDLE, suffix,
+                            getKeyName(element), FIELD_HOST, element.getSimpleName());
+                } else {
+                    builder.add("if (!$N.containsKey($N)) {\n", BUNDLE, getKeyName(element))
+                            .add("    throw new $T(\"Non-optional extra for $T.$N was not found\");\n",
+                                    NullPointerException.class, mHostType, element.getSimpleName())
+                            .add("}\n")
+                            .add("$N.$N = $N.get$L($N);\n", FIELD_HOST, element.getSimpleName(), BUNDLE, suffix,
+                                    getKeyName(element));
+                }
+                continue;
+            }
+
+            builder.add("$N = $N.get$L($N);\n", EXTRA, BUNDLE, suffix, getKeyName(element));
             if (isNullable(element) || bindExtra.optional()) {
                 builder.add("if ($N != null) {\n", EXTRA)
                         .add("    $N.$N = ($T) $N;\n", FIELD_HOST, element.getSimpleName(), element.asType(), EXTRA)
@@ -118,4 +229,156 @@ final class ExtraBindingHolder extends AbstractBindingHolder {
 
         return builder.build();
     }
+
+    // Typed setters into a Bundle sized for every extra, checked for missing non-optional extras when built. Intents
+    // copy the extras they are given, so an intent builder can be reused, while arguments are handed over as they are
+    @NonNull
+    private TypeSpec generateBuilderClass() throws ShivException {
+        boolean activity = ProcessorUtils.isSubtypeOfType(mHostType, Activity.class);
+        if (!activity && !ProcessorUtils.isSubtypeOfType(mHostType, Fragment.class) &&
+                !ProcessorUtils.isSubtypeOfType(mHostType, android.support.v4.app.Fragment.class)) {
+            throw new ShivException("Unsupported class: " + mHostType.getQualifiedName());
+        }
+
+        String packageName = mProcessor.getPackageName(mHostType);
+        ClassName builderClass = ClassName.get(packageName, mProcessor.getClassName(mHostType, packageName) +
+                Binder.CLASS_SUFFIX, activity ? INTENT_BUILDER : ARGUMENTS_BUILDER);
+
+        List<Element> elements = new ArrayList<>(mInheritedElements);
+        elements.addAll(mElements);
+
+        TypeSpec.Builder typeSpecBuilder = TypeSpec.classBuilder(builderClass.simpleName())
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
+        if (activity) {
+            typeSpecBuilder.addJavadoc("Builds intents for {@link $T}. Each intent gets its own copy of the extras, so " +
+                    "the builder can be\nreused, and changes after building do not affect intents already built.\n",
+                    mHostType)
+                    .addField(FieldSpec.builder(Bundle.class, EXTRAS, Modifier.PRIVATE, Modifier.FINAL)
+                            .addAnnotation(NonNull.class)
+                            .initializer("new $T($L)", Bundle.class, elements.size())
+                            .build());
+        } else {
+            typeSpecBuilder.addJavadoc("Builds arguments for {@link $T}. The built bundle is the one the setters " +
+                    "wrote to, so the\nbuilder can only be built once, and throws if used after that.\n", mHostType)
+                    .addField(FieldSpec.builder(Bundle.class, EXTRAS, Modifier.PRIVATE)
+                            .addAnnotation(Nullable.class)
+                            .initializer("new $T($L)", Bundle.class, elements.size())
+                            .build())
+                    .addMethod(MethodSpec.methodBuilder(GET_EXTRAS)
+                            .addModifiers(Modifier.PRIVATE)
+                            .addAnnotation(NonNull.class)
+                            .returns(Bundle.class)
+                            .beginControlFlow("if ($N == null)", EXTRAS)
+                            .addStatement("throw new $T($S)", IllegalStateException.class,
+                                    builderClass.simpleName() + " was already built")
+                            .endControlFlow()
+                            .addStatement("return $N", EXTRAS)
+                            .build());
+        }
+        CodeBlock extras = activity ? CodeBlock.of("$N", EXTRAS) : CodeBlock.of("$N()", GET_EXTRAS);
+
+        CodeBlock.Builder buildCode = CodeBlock.builder();
+        if (!activity) {
+            buildCode.add("$T $N = $N();\n", Bundle.class, BUILT, GET_EXTRAS);
+        }
+        CodeBlock built = activity ? CodeBlock.of("$N", EXTRAS) : CodeBlock.of("$N", BUILT);
+
+        for (Element element : elements) {
+            String name = element.getSimpleName().toString();
+            if (name.equals(BUILD) || name.equals(GET_EXTRAS)) {
+                throw new ShivException("Extra field name conflicts with generated builder method: " + name);
+            }
+
+            boolean primitive = element.asType().getKind().isPrimitive();
+            boolean optional = isOptional(element);
+            ParameterSpec.Builder param = ParameterSpec.builder(TypeName.get(element.asType()), name);
+            if (!primitive) {
+                param.addAnnotation(optional ? Nullable.class : NonNull.class);
+            }
+
+            typeSpecBuilder.addMethod(MethodSpec.methodBuilder(name)
+                    .addModifiers(Modifier.PUBLIC)
+                    .addAnnotation(NonNull.class)
+                    .returns(builderClass)
+                    .addParameter(param.build())
+                    .addCode(CodeBlock.builder()
+                            .add("$L.put$L($N, $N);\n", extras, getPutSuffix(element), getKeyName(element), name)
+                            .add("return this;\n")
+                            .build())
+                    .build());
+
+            if (!optional) {
+                buildCode.beginControlFlow(primitive ? "if (!$L.containsKey($N))" : "if ($L.get($N) == null)", built,
+                        getKeyName(element))
+                        .add("throw new $T(\"Non-optional extra for $T.$N was not set\");\n", IllegalStateException.class,
+                                element.getEnclosingElement(), element.getSimpleName())
+                        .endControlFlow();
+            }
+        }
+
+        MethodSpec.Builder buildMethod = MethodSpec.methodBuilder(BUILD)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(NonNull.class);
+        if (activity) {
+            buildMethod.returns(Intent.class)
+                    .addParameter(ParameterSpec.builder(Context.class, CONTEXT).addAnnotation(NonNull.class).build())
+                    .addCode(buildCode.add("return new $T($N, $T.class).putExtras($N);\n", Intent.class, CONTEXT,
+                            ClassName.get(mHostType), EXTRAS).build());
+        } else {
+            buildMethod.returns(Bundle.class)
+                    .addCode(buildCode.add("$N = null;\n", EXTRAS)
+                            .add("return $N;\n", BUILT)
+                            .build());
+        }
+
+        return typeSpecBuilder.addMethod(buildMethod.build()).build();
+    }
+
+    @NonNull
+    private static String getKeyName(@NonNull Element element) {
+        return (KEY_EXTRA_PREFIX + element.getSimpleName()).toUpperCase();
+    }
+
+    // Matches the checks made by bindExtras, where a nullable object extra is not required
+    private static boolean isOptional(@NonNull Element element) {
+        BindExtra bindExtra = element.getAnnotation(BindExtra.class);
+        if (bindExtra.optional() || !bindExtra.defaultValue().isEmpty()) {
+            return true;
+        }
+        return !element.asType().getKind().isPrimitive() && isNullable(element);
+    }
+
+    // Java literal for an annotation default, checked against the primitive type of the field
+    @NonNull
+    private static CodeBlock getDefaultValue(@NonNull Element element, @NonNull String value) throws ShivException {
+        TypeKind kind = element.asType().getKind();
+        try {
+            if (kind == TypeKind.BOOLEAN && (value.equals("true") || value.equals("false"))) {
+                return CodeBlock.of("$L", value);
+            } else if (kind == TypeKind.INT) {
+                return CodeBlock.of("$L", Integer.decode(value));
+            } else if (kind == TypeKind.LONG) {
+                return CodeBlock.of("$LL", Long.decode(value));
+            } else if (kind == TypeKind.SHORT) {
+                return CodeBlock.of("(short) $L", Short.decode(value));
+            } else if (kind == TypeKind.BYTE) {
+                return CodeBlock.of("(byte) $L", Byte.decode(value));
+            } else if (kind == TypeKind.CHAR && value.length() == 1) {
+                return CodeBlock.of("(char) $L", (int) value.charAt(0));
+            } else if (kind == TypeKind.FLOAT) {
+                float floatValue = Float.parseFloat(value);
+                if (!Float.isNaN(floatValue) && !Float.isInfinite(floatValue)) {
+                    return CodeBlock.of("$Lf", floatValue);
+                }
+            } else if (kind == TypeKind.DOUBLE) {
+                double doubleValue = Double.parseDouble(value);
+                if (!Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue)) {
+                    return CodeBlock.of("$L", doubleValue);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new ShivException("Invalid default value for extra " + element.getSimpleName() + ": " + value);
+    }
 }
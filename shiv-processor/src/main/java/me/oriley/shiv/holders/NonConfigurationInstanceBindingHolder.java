@@ -20,6 +20,7 @@ import android.app.Activity;
 import android.support.annotation.NonNull;
 import android.support.v4.app.FragmentActivity;
 import com.squareup.javapoet.*;
+import me.oriley.shiv.Binder;
 import me.oriley.shiv.ShivException;
 import me.oriley.shiv.ShivProcessor;
 
@@ -53,6 +54,11 @@ final class NonConfigurationInstanceBindingHolder extends AbstractBindingHolder
         return mElements.size() > 0 ? Collections.singletonList(UNCHECKED) : Collections.emptyList();
     }
 
+    @Override
+    int getOperations() {
+        return mElements.isEmpty() ? 0 : Binder.SAVE_NON_CONFIGURATION_INSTANCE | Binder.RESTORE_NON_CONFIGURATION_INSTANCE;
+    }
+
     @Override
     void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException {
         if (mElements.isEmpty()) {
@@ -60,39 +66,23 @@ final class NonConfigurationInstanceBindingHolder extends AbstractBindingHolder
             return;
         }
 
-        // Type parameter
-        ParameterSpec param = ParameterSpec.builder(TypeName.get(Object.class)
-                .annotated(AnnotationSpec.builder(NonNull.class).build()), OBJECT, Modifier.FINAL)
-                .build();
-
         ParameterSpec mapParam = ParameterSpec.builder(NON_CONFIGURATION_MAP_TYPE.annotated(AnnotationSpec
                 .builder(NonNull.class).build()), MAP, Modifier.FINAL)
                 .build();
 
         // Create restoreNonConfigInstance method
-        MethodSpec restoreMethod = MethodSpec.methodBuilder(RESTORE_NON_CONFIG_INSTANCE)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generateRestoreNonConfigInstanceMethod(typeSpecBuilder))
-                .build();
+        addOperationMethod(typeSpecBuilder, RESTORE_NON_CONFIG_INSTANCE,
+                generateRestoreNonConfigInstanceMethod(typeSpecBuilder));
 
         // Create saveNonConfigInstance method
-        MethodSpec saveMethod = MethodSpec.methodBuilder(SAVE_NON_CONFIG_INSTANCE)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addParameter(mapParam)
-                .addCode(generateSaveNonConfigInstanceMethod())
-                .build();
-
-        typeSpecBuilder.addMethod(restoreMethod).addMethod(saveMethod);
+        addOperationMethod(typeSpecBuilder, SAVE_NON_CONFIG_INSTANCE, generateSaveNonConfigInstanceMethod(), mapParam);
     }
 
     @NonNull
     private CodeBlock generateSaveNonConfigInstanceMethod() throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT);
+        CodeBlock.Builder builder = createCodeBuilder(Binder.SAVE_NON_CONFIGURATION_INSTANCE, SAVE_NON_CONFIG_INSTANCE,
+                OBJECT, MAP)
+                .add(castHost());
 
         for (Element element : mElements) {
             String keyName = (KEY_INSTANCE_PREFIX + element.getSimpleName()).toUpperCase();
@@ -106,8 +96,9 @@ final class NonConfigurationInstanceBindingHolder extends AbstractBindingHolder
 
     @NonNull
     private CodeBlock generateRestoreNonConfigInstanceMethod(@NonNull TypeSpec.Builder hostBuilder) throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT);
+        CodeBlock.Builder builder = createCodeBuilder(Binder.RESTORE_NON_CONFIGURATION_INSTANCE, RESTORE_NON_CONFIG_INSTANCE,
+                OBJECT)
+                .add(castHost());
 
         String methodName;
         if (isSubtypeOfType(mHostType, FragmentActivity.class)) {
@@ -22,11 +22,11 @@ import android.support.annotation.NonNull;
 import android.support.v7.preference.PreferenceFragmentCompat;
 import com.squareup.javapoet.*;
 import me.oriley.shiv.BindPreference;
+import me.oriley.shiv.Binder;
 import me.oriley.shiv.ShivException;
 import me.oriley.shiv.ShivProcessor;
 
 import javax.lang.model.element.Element;
-import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 
 import static me.oriley.shiv.ProcessorUtils.isNullable;
@@ -43,6 +43,11 @@ final class PreferenceBindingHolder extends AbstractBindingHolder {
     }
 
 
+    @Override
+    int getOperations() {
+        return mElements.isEmpty() ? 0 : Binder.BIND_PREFERENCES | Binder.UNBIND_PREFERENCES;
+    }
+
     @Override
     void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException {
         if (mElements.isEmpty()) {
@@ -50,34 +55,17 @@ final class PreferenceBindingHolder extends AbstractBindingHolder {
             return;
         }
 
-        // Type parameter
-        ParameterSpec param = ParameterSpec.builder(TypeName.get(Object.class)
-                .annotated(AnnotationSpec.builder(NonNull.class).build()), OBJECT, Modifier.FINAL)
-                .build();
-
         // Create bindPreferences method
-        MethodSpec bindMethod = MethodSpec.methodBuilder(BIND_PREFERENCES)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generateBindPreferencesMethod())
-                .build();
+        addOperationMethod(typeSpecBuilder, BIND_PREFERENCES, generateBindPreferencesMethod());
 
         // Create unbindPreferences method
-        MethodSpec unbindMethod = MethodSpec.methodBuilder(UNBIND_PREFERENCES)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generateUnbindPreferencesMethod())
-                .build();
-
-        typeSpecBuilder.addMethod(bindMethod).addMethod(unbindMethod);
+        addOperationMethod(typeSpecBuilder, UNBIND_PREFERENCES, generateUnbindPreferencesMethod());
     }
 
     @NonNull
     private CodeBlock generateBindPreferencesMethod() throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT);
+        CodeBlock.Builder builder = createCodeBuilder(Binder.BIND_PREFERENCES, BIND_PREFERENCES, OBJECT)
+                .add(castHost());
 
         if (!isSubtypeOfType(mHostType, PreferenceActivity.class) && !isSubtypeOfType(mHostType, PreferenceFragment.class) &&
                 !isSubtypeOfType(mHostType, PreferenceFragmentCompat.class)) {
@@ -100,8 +88,8 @@ final class PreferenceBindingHolder extends AbstractBindingHolder {
 
     @NonNull
     private CodeBlock generateUnbindPreferencesMethod() throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT);
+        CodeBlock.Builder builder = createCodeBuilder(Binder.UNBIND_PREFERENCES, UNBIND_PREFERENCES, OBJECT)
+                .add(castHost());
 
         for (Element element : mElements) {
             builder.add("$N.$N = null;\n", FIELD_HOST, element.getSimpleName());
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv.holders;
+
+import android.app.Activity;
+import android.app.Fragment;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.view.View;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeSpec;
+import me.oriley.shiv.*;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+
+import static me.oriley.shiv.ProcessorUtils.isSubtypeOfType;
+
+final class ResourceBindingHolder extends AbstractBindingHolder {
+
+    private static final String BIND_RESOURCES = "bindResources";
+    private static final String RESOURCES = "resources";
+    private static final String CACHE = "cache";
+
+
+    ResourceBindingHolder(@NonNull ShivProcessor processor, @NonNull TypeElement hostType) {
+        super(processor, hostType);
+    }
+
+
+    @Override
+    int getOperations() {
+        return mElements.isEmpty() ? 0 : Binder.BIND_RESOURCES;
+    }
+
+    @Override
+    void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException {
+        if (mElements.isEmpty()) {
+            // Nothing to bind
+            return;
+        }
+
+        // Create bindResources method
+        addOperationMethod(typeSpecBuilder, BIND_RESOURCES, generateBindResourcesMethod());
+    }
+
+    @NonNull
+    private CodeBlock generateBindResourcesMethod() throws ShivException {
+        if (!isSubtypeOfType(mHostType, Activity.class) && !isSubtypeOfType(mHostType, View.class) &&
+                !isSubtypeOfType(mHostType, Fragment.class) &&
+                !isSubtypeOfType(mHostType, android.support.v4.app.Fragment.class)) {
+            throw new ShivException("Unsupported class: " + mHostType.getQualifiedName());
+        }
+
+        // The cache is looked up once per bind, so a configuration change is only checked for here
+        CodeBlock.Builder builder = createCodeBuilder(Binder.BIND_RESOURCES, BIND_RESOURCES, OBJECT)
+                .add(castHost())
+                .add("$T $N = $N.getResources();\n", Resources.class, RESOURCES, FIELD_HOST)
+                .add("$T $N = $T.get($N);\n", ResourceCache.class, CACHE, ResourceCache.class, RESOURCES);
+
+        for (Element element : mElements) {
+            builder.add("$N.$N = ", FIELD_HOST, element.getSimpleName())
+                    .add(getResourceValue(element))
+                    .add(";\n");
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    private CodeBlock getResourceValue(@NonNull Element element) throws ShivException {
+        if (element.getAnnotation(BindString.class) != null) {
+            return CodeBlock.of("$N.getString($N, $L)", CACHE, RESOURCES, element.getAnnotation(BindString.class).value());
+        } else if (element.getAnnotation(BindDimen.class) != null) {
+            // Integer fields take the pixel size, rounded the same way as layout dimensions
+            int value = element.getAnnotation(BindDimen.class).value();
+            return element.asType().getKind() == TypeKind.INT ?
+                    CodeBlock.of("$N.getDimensionPixelSize($N, $L)", CACHE, RESOURCES, value) :
+                    CodeBlock.of("$N.getDimension($N, $L)", CACHE, RESOURCES, value);
+        } else if (element.getAnnotation(BindColor.class) != null) {
+            return CodeBlock.of("$N.getColor($N, $L)", CACHE, RESOURCES, element.getAnnotation(BindColor.class).value());
+        } else if (element.getAnnotation(BindInteger.class) != null) {
+            return CodeBlock.of("$N.getInteger($N, $L)", CACHE, RESOURCES, element.getAnnotation(BindInteger.class).value());
+        } else if (element.getAnnotation(BindDrawable.class) != null) {
+            int value = element.getAnnotation(BindDrawable.class).value();
+            return Drawable.class.getCanonicalName().equals(element.asType().toString()) ?
+                    CodeBlock.of("$N.getDrawable($N, $L)", CACHE, RESOURCES, value) :
+                    CodeBlock.of("($T) $N.getDrawable($N, $L)", element.asType(), CACHE, RESOURCES, value);
+        } else {
+            throw new ShivException("Unrecognised resource binding: " + element.getSimpleName());
+        }
+    }
+}
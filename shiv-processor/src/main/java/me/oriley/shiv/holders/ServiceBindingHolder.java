@@ -67,11 +67,11 @@ import android.view.inputmethod.InputMethodManager;
 import android.view.textservice.TextServicesManager;
 import com.squareup.javapoet.*;
 import me.oriley.shiv.BindService;
+import me.oriley.shiv.Binder;
 import me.oriley.shiv.ShivException;
 import me.oriley.shiv.ShivProcessor;
 
 import javax.lang.model.element.Element;
-import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 
@@ -172,6 +172,11 @@ final class ServiceBindingHolder extends AbstractBindingHolder {
     }
 
 
+    @Override
+    int getOperations() {
+        return mElements.isEmpty() ? 0 : Binder.BIND_SERVICES;
+    }
+
     @Override
     void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException {
         if (mElements.isEmpty()) {
@@ -179,26 +184,14 @@ final class ServiceBindingHolder extends AbstractBindingHolder {
             return;
         }
 
-        // Type parameter
-        ParameterSpec param = ParameterSpec.builder(TypeName.get(Object.class)
-                .annotated(AnnotationSpec.builder(NonNull.class).build()), OBJECT, Modifier.FINAL)
-                .build();
-
         // Create bindServices method
-        MethodSpec servicesMethod = MethodSpec.methodBuilder(BIND_SERVICES)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generateBindServicesMethod())
-                .build();
-
-        typeSpecBuilder.addMethod(servicesMethod);
+        addOperationMethod(typeSpecBuilder, BIND_SERVICES, generateBindServicesMethod());
     }
 
     @NonNull
     private CodeBlock generateBindServicesMethod() throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT)
+        CodeBlock.Builder builder = createCodeBuilder(Binder.BIND_SERVICES, BIND_SERVICES, OBJECT)
+                .add(castHost())
                 .add("$T $N;\n", Object.class, EXTRA);
 
         String getContext;
@@ -234,6 +227,7 @@ final class ServiceBindingHolder extends AbstractBindingHolder {
             builder.add("$N.$N = ($T) $N;\n", FIELD_HOST, element.getSimpleName(), element.asType(), EXTRA);
         }
 
+        builder.add("reportServicesBound($N, $L);\n", FIELD_HOST, mElements.size());
         return builder.build();
     }
 
@@ -19,28 +19,83 @@ package me.oriley.shiv.holders;
 import android.app.Activity;
 import android.app.Fragment;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewStub;
+import android.view.Window;
 import com.squareup.javapoet.*;
+import me.oriley.shiv.BindRoot;
 import me.oriley.shiv.BindView;
+import me.oriley.shiv.BindViews;
+import me.oriley.shiv.IdTable;
+import me.oriley.shiv.LayoutAnalyzer;
+import me.oriley.shiv.OnClick;
+import me.oriley.shiv.OnLongClick;
+import me.oriley.shiv.Binder;
 import me.oriley.shiv.ShivException;
 import me.oriley.shiv.ShivProcessor;
+import me.oriley.shiv.ViewPaths;
+import me.oriley.shiv.ViewTraversal;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import static me.oriley.shiv.ProcessorUtils.getViewsComponentType;
 import static me.oriley.shiv.ProcessorUtils.isNullable;
 import static me.oriley.shiv.ProcessorUtils.isSubtypeOfType;
 
 final class ViewBindingHolder extends AbstractBindingHolder {
 
     private static final String BIND_VIEWS = "bindViews";
+    private static final String BIND_ADDED_VIEWS = "bindAddedViews";
+    private static final String FIND_ADDED_VIEWS = "findAddedViews";
+    private static final String SUBTREE = "subtree";
+    private static final String MISSING = "missing";
     private static final String UNBIND_VIEWS = "unbindViews";
-    private static final String BOUND = "bound";
     private static final String VIEW = "view";
     private static final String VIEW_GROUP = "viewGroup";
-    private static final String VIEW_COUNT = "VIEW_COUNT";
+    private static final String ROOT = "root";
+    private static final String ID_COUNT = "ID_COUNT";
+    private static final String VIEW_PATHS = "VIEW_PATHS";
+    private static final String ID_TABLE = "ID_TABLE";
+    private static final String INDEX = "index";
+    private static final String TRAVERSAL = "traversal";
+    private static final String BIND_STUB = "bindStub";
+    private static final String BIND_STUB_VIEWS = "bindStubViews";
+    private static final String STUB_LISTENER = "StubInflateListener";
+    private static final String STUB_LISTENERS = "STUB_LISTENERS";
+    private static final String GET_STUB_LISTENER = "getStubListener";
+    private static final String STUB = "stub";
+    private static final String STUB_ID = "stubId";
+    private static final String INFLATED = "inflated";
+    private static final String HOST = "host";
+    private static final int STUB_POSITION = -2;
+    private static final int CLICK_POSITION = -3;
+    private static final int LONG_CLICK_POSITION = -4;
+    private static final String VIEW_LISTENER = "ViewListener";
+    private static final String LISTENER = "listener";
+    private static final String LISTENERS = "listeners";
+
+
+    @NonNull
+    private final List<Element> mInheritedElements = new ArrayList<>();
+
+    @Nullable
+    private int[][] mLayoutPaths;
 
 
     ViewBindingHolder(@NonNull ShivProcessor processor, @NonNull TypeElement hostType) {
@@ -48,77 +103,505 @@ final class ViewBindingHolder extends AbstractBindingHolder {
     }
 
 
+    @Override
+    int getOperations() {
+        return mElements.isEmpty() ? 0 : Binder.BIND_VIEWS | Binder.UNBIND_VIEWS;
+    }
+
+    // Superclass views are merged into this binder's walk so one traversal binds the whole hierarchy
+    void setInheritedElements(@NonNull List<Element> elements) {
+        mInheritedElements.clear();
+        mInheritedElements.addAll(elements);
+    }
+
+    @NonNull
+    private List<Element> getAllElements() {
+        List<Element> elements = new ArrayList<>(mInheritedElements);
+        elements.addAll(mElements);
+        return elements;
+    }
+
+    // Views bound during the walk, or lazy views, but not those deferred until their stub inflates
+    @NonNull
+    private List<Element> getElements(boolean lazy) {
+        List<Element> elements = new ArrayList<>();
+        for (Element element : getAllElements()) {
+            if (element.getKind() == ElementKind.FIELD && isLazy(element) == lazy && getStubId(element) == 0) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    // Views inside a ViewStub, grouped by stub id, bound from the inflated view once the stub inflates
+    @NonNull
+    private Map<Integer, List<Element>> getElementsByStub() {
+        Map<Integer, List<Element>> elementsByStub = new LinkedHashMap<>();
+        for (Element element : getAllElements()) {
+            int stubId = getStubId(element);
+            if (stubId == 0) {
+                continue;
+            }
+            List<Element> elements = elementsByStub.get(stubId);
+            if (elements == null) {
+                elements = new ArrayList<>();
+                elementsByStub.put(stubId, elements);
+            }
+            elements.add(element);
+        }
+        return elementsByStub;
+    }
+
+    // Methods called by the shared click listener, installed on views found during the walk
+    @NonNull
+    private List<Element> getListenerElements() {
+        List<Element> elements = new ArrayList<>();
+        for (Element element : getAllElements()) {
+            if (element.getKind() == ElementKind.METHOD) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    private static boolean isListener(@NonNull ViewTarget target) {
+        return target.position == CLICK_POSITION || target.position == LONG_CLICK_POSITION;
+    }
+
+    private static boolean hasListener(@NonNull List<ViewTarget> targets, int position) {
+        for (ViewTarget target : targets) {
+            if (target.position == position) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLazy(@NonNull Element element) {
+        BindView bindView = element.getAnnotation(BindView.class);
+        return bindView != null && bindView.lazy();
+    }
+
+    private static int getStubId(@NonNull Element element) {
+        BindView bindView = element.getAnnotation(BindView.class);
+        return bindView != null ? bindView.stub() : 0;
+    }
+
+    @Nullable
+    private static int[] getGroupIds(@NonNull Element element) {
+        BindViews bindViews = element.getAnnotation(BindViews.class);
+        return bindViews != null ? bindViews.value() : null;
+    }
+
+    // Either a constant id or, for library modules, a reference to the non-final R.id field. Names of constant fields
+    // are resolved, so a view bound by name and by value shares one target instead of two that can never both be found
+    @NonNull
+    private CodeBlock getId(@NonNull Element element) {
+        BindView bindView = element.getAnnotation(BindView.class);
+        if (bindView.idName().isEmpty()) {
+            return CodeBlock.of("$L", bindView.value());
+        }
+        Integer constantId = mProcessor.getConstantId(bindView.idName());
+        if (constantId != null) {
+            return CodeBlock.of("$L", constantId);
+        }
+        return CodeBlock.of("$T.$N", ClassName.get(mProcessor.getRPackage(), "R", "id"), bindView.idName());
+    }
+
+    // Ids that are not constants can't be switch labels, so are looked up in a sorted table instead
+    private boolean isTableDispatch() {
+        if (mProcessor.isTableIdDispatch()) {
+            return true;
+        }
+        for (Element element : getElements(false)) {
+            BindView bindView = element.getAnnotation(BindView.class);
+            if (bindView != null && !bindView.idName().isEmpty() && mProcessor.getConstantId(bindView.idName()) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private CodeBlock getIds() {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        boolean first = true;
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            if (!first) {
+                builder.add(", ");
+            }
+            first = false;
+            builder.add(targets.get(0).id);
+        }
+        return builder.build();
+    }
+
+    // Fields and group slots sharing an id are bound from the same view, with one found flag per id
+    @NonNull
+    private Map<String, List<ViewTarget>> getTargetsById() {
+        Map<String, List<ViewTarget>> targetsById = new LinkedHashMap<>();
+        for (Element element : getElements(false)) {
+            int[] groupIds = getGroupIds(element);
+            if (groupIds == null) {
+                BindView bindView = element.getAnnotation(BindView.class);
+                Integer constantId = bindView.idName().isEmpty() ? null : mProcessor.getConstantId(bindView.idName());
+                addTarget(targetsById, new ViewTarget(element, getId(element),
+                        constantId != null ? constantId : bindView.value(),
+                        bindView.idName().isEmpty() ? null : bindView.idName(), -1));
+                continue;
+            }
+            for (int i = 0; i < groupIds.length; i++) {
+                addTarget(targetsById, new ViewTarget(element, CodeBlock.of("$L", groupIds[i]), groupIds[i], null, i));
+            }
+        }
+        // The walk finds each stub, so its views can be bound when it inflates
+        for (Map.Entry<Integer, List<Element>> entry : getElementsByStub().entrySet()) {
+            addTarget(targetsById, new ViewTarget(entry.getValue().get(0), CodeBlock.of("$L", entry.getKey()),
+                    entry.getKey(), null, STUB_POSITION));
+        }
+        for (Element element : getListenerElements()) {
+            OnClick onClick = element.getAnnotation(OnClick.class);
+            for (int id : onClick != null ? onClick.value() : new int[0]) {
+                addTarget(targetsById, new ViewTarget(element, CodeBlock.of("$L", id), id, null, CLICK_POSITION));
+            }
+            OnLongClick onLongClick = element.getAnnotation(OnLongClick.class);
+            for (int id : onLongClick != null ? onLongClick.value() : new int[0]) {
+                addTarget(targetsById, new ViewTarget(element, CodeBlock.of("$L", id), id, null, LONG_CLICK_POSITION));
+            }
+        }
+        return targetsById;
+    }
+
+    private static void addTarget(@NonNull Map<String, List<ViewTarget>> targetsById, @NonNull ViewTarget target) {
+        String id = target.id.toString();
+        List<ViewTarget> targets = targetsById.get(id);
+        if (targets == null) {
+            targets = new ArrayList<>();
+            targetsById.put(id, targets);
+        }
+        targets.add(target);
+    }
+
+    // Activities and view groups inflate their layout into the root, other hosts bind from the inflated view itself
+    private boolean isInflatedIntoRoot() {
+        return isSubtypeOfType(mHostType, Activity.class) || isSubtypeOfType(mHostType, ViewGroup.class);
+    }
+
+    // Paths found by layout analysis, only used if every id in the walk was found in the layout
+    @Nullable
+    private int[][] getLayoutPaths() throws ShivException {
+        LayoutAnalyzer analyzer = mProcessor.getLayoutAnalyzer();
+        if (analyzer == null) {
+            return null;
+        }
+
+        List<String> idNames = new ArrayList<>();
+        List<Element> fields = new ArrayList<>();
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            ViewTarget target = targets.get(0);
+            for (ViewTarget other : targets) {
+                if (!isNullable(other.element)) {
+                    target = other;
+                    break;
+                }
+            }
+            idNames.add(target.idName != null ? target.idName : analyzer.getIdName(mHostType, target.value));
+            fields.add(target.element);
+        }
+        int walkedCount = idNames.size();
+
+        // Lazy views are only checked against the layout
+        for (Element element : getElements(true)) {
+            BindView bindView = element.getAnnotation(BindView.class);
+            idNames.add(!bindView.idName().isEmpty() ? bindView.idName() : analyzer.getIdName(mHostType, bindView.value()));
+            fields.add(element);
+        }
+
+        int[][] paths = analyzer.getPaths(mHostType, isInflatedIntoRoot(), idNames, fields);
+        if (paths == null || walkedCount == 0) {
+            return null;
+        }
+        for (int i = 0; i < walkedCount; i++) {
+            if (paths[i] == null) {
+                return null;
+            }
+        }
+        return Arrays.copyOf(paths, walkedCount);
+    }
+
+    @NonNull
+    private CodeBlock getLayoutPathsCode() {
+        //noinspection ConstantConditions
+        CodeBlock.Builder builder = CodeBlock.builder().add("new int[][]{");
+        for (int i = 0; i < mLayoutPaths.length; i++) {
+            builder.add(i > 0 ? ", {" : "{");
+            for (int j = 0; j < mLayoutPaths[i].length; j++) {
+                builder.add(j > 0 ? ", $L" : "$L", mLayoutPaths[i][j]);
+            }
+            builder.add("}");
+        }
+        return builder.add("}").build();
+    }
+
+    // Replays paths from the traversal's views, either learned at runtime or found by layout analysis
+    private boolean isViewPathsEnabled() {
+        return mProcessor.isLearnViewPathsEnabled() || mLayoutPaths != null;
+    }
+
+    @NonNull
+    private static TypeMirror getComponentType(@NonNull Element element) {
+        //noinspection ConstantConditions
+        return getViewsComponentType(element.asType());
+    }
+
+    @NonNull
+    private CodeBlock assignTarget(@NonNull ViewTarget target, @NonNull CodeBlock view) {
+        Element element = target.element;
+        if (isListener(target)) {
+            // Listeners are installed from the traversal's views once the walk is done
+            return CodeBlock.builder().build();
+        } else if (target.position == STUB_POSITION) {
+            return CodeBlock.of("$N($N, $L, $L);\n", BIND_STUB, FIELD_HOST, target.id, view);
+        } else if (target.position < 0) {
+            return CodeBlock.of("$N.$N = ($T) $L;\n", FIELD_HOST, element.getSimpleName(), element.asType(), view);
+        } else if (element.asType().getKind() == TypeKind.ARRAY) {
+            return CodeBlock.of("$N.$N[$L] = ($T) $L;\n", FIELD_HOST, element.getSimpleName(), target.position,
+                    getComponentType(element), view);
+        } else {
+            return CodeBlock.of("$N.$N.set($L, ($T) $L);\n", FIELD_HOST, element.getSimpleName(), target.position,
+                    getComponentType(element), view);
+        }
+    }
+
     @Override
     void addBindingsToClass(@NonNull TypeSpec.Builder typeSpecBuilder) throws ShivException {
         if (mElements.isEmpty()) {
             // Nothing to bind
             return;
         }
+        mLayoutPaths = getLayoutPaths();
 
-        // Type parameter
-        ParameterSpec param = ParameterSpec.builder(TypeName.get(Object.class)
-                .annotated(AnnotationSpec.builder(NonNull.class).build()), OBJECT, Modifier.FINAL)
+        ParameterSpec hostParam = ParameterSpec.builder(TypeName.get(mHostType.asType())
+                .annotated(AnnotationSpec.builder(NonNull.class).build()), FIELD_HOST, Modifier.FINAL)
                 .build();
 
-        ParameterSpec viewGroupParam = ParameterSpec.builder(ClassName.get(ViewGroup.class)
-                .annotated(AnnotationSpec.builder(NonNull.class).build()), VIEW_GROUP, Modifier.FINAL)
+        ParameterSpec viewParam = ParameterSpec.builder(ClassName.get(View.class)
+                .annotated(AnnotationSpec.builder(NonNull.class).build()),
+                mProcessor.isIterativeViewTraversal() ? ROOT : VIEW, Modifier.FINAL)
                 .build();
 
-        // Add count to final field for early exit strategy
-        typeSpecBuilder.addField(FieldSpec.builder(int.class, VIEW_COUNT, Modifier.FINAL, Modifier.STATIC,
-                Modifier.PRIVATE).initializer("$L", mElements.size()).build());
-
-        // Create bindViews method
-        MethodSpec publicBindMethod = MethodSpec.methodBuilder(BIND_VIEWS)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generatePublicBindViewsMethod())
+        ParameterSpec traversalParam = ParameterSpec.builder(ClassName.get(ViewTraversal.class)
+                .annotated(AnnotationSpec.builder(NonNull.class).build()), TRAVERSAL, Modifier.FINAL)
                 .build();
 
-        // Create bindViews method
-        MethodSpec iterativeBindMethod = MethodSpec.methodBuilder(BIND_VIEWS)
-                .addModifiers(Modifier.PRIVATE)
-                .addParameter(param)
-                .addParameter(viewGroupParam)
-                .returns(int.class)
-                .addCode(generateProtectedBindViewsMethod())
+        ParameterSpec rootParam = ParameterSpec.builder(ClassName.get(View.class)
+                .annotated(AnnotationSpec.builder(Nullable.class).build()), ROOT, Modifier.FINAL)
                 .build();
 
+        // Create bindViews methods, finding the root for hosts that have one. Other targets, such as view holders,
+        // keep the base no-op and are only bound from an explicit root
+        if (hasImplicitRoot()) {
+            addDelegatingOperationMethod(typeSpecBuilder, BIND_VIEWS, generatePublicBindViewsMethod());
+        }
+        addOperationMethod(typeSpecBuilder, BIND_VIEWS, generateRootBindViewsMethod(), rootParam);
+
+        if (!getTargetsById().isEmpty()) {
+            // Add count to final field for early exit strategy
+            typeSpecBuilder.addField(FieldSpec.builder(int.class, ID_COUNT, Modifier.FINAL, Modifier.STATIC,
+                    Modifier.PRIVATE).initializer("$L", getTargetsById().size()).build());
+
+            if (mLayoutPaths != null) {
+                typeSpecBuilder.addField(FieldSpec.builder(ViewPaths.class, VIEW_PATHS, Modifier.FINAL, Modifier.STATIC,
+                        Modifier.PRIVATE).initializer("new $T(new int[]{$L}, $L)", ViewPaths.class, getIds(),
+                        getLayoutPathsCode()).build());
+            } else if (mProcessor.isLearnViewPathsEnabled()) {
+                typeSpecBuilder.addField(FieldSpec.builder(ViewPaths.class, VIEW_PATHS, Modifier.FINAL, Modifier.STATIC,
+                        Modifier.PRIVATE).initializer("new $T($L)", ViewPaths.class, getIds()).build());
+            }
+
+            if (isTableDispatch()) {
+                typeSpecBuilder.addField(FieldSpec.builder(IdTable.class, ID_TABLE, Modifier.FINAL, Modifier.STATIC,
+                        Modifier.PRIVATE).initializer("new $T($L)", IdTable.class, getIds()).build());
+            }
+
+            // Create bindViews method
+            MethodSpec iterativeBindMethod = MethodSpec.methodBuilder(BIND_VIEWS)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addParameter(hostParam)
+                    .addParameter(viewParam)
+                    .addParameter(traversalParam)
+                    .addCode(generateProtectedBindViewsMethod(BIND_VIEWS, false))
+                    .build();
+            typeSpecBuilder.addMethod(iterativeBindMethod);
+
+            if (!isViewPathsEnabled()) {
+                // Added views are only collected by their walk, so fields can be checked before they are assigned
+                typeSpecBuilder.addMethod(MethodSpec.methodBuilder(FIND_ADDED_VIEWS)
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .addParameter(hostParam)
+                        .addParameter(viewParam)
+                        .addParameter(traversalParam)
+                        .addCode(generateProtectedBindViewsMethod(FIND_ADDED_VIEWS, true))
+                        .build());
+            }
+        }
+
+        if (!getElementsByStub().isEmpty()) {
+            addStubBindings(typeSpecBuilder, hostParam);
+        }
+
+        if (!getListenerElements().isEmpty()) {
+            addListenerClass(typeSpecBuilder, hostParam);
+        }
+
+        if (!getTargetsById().isEmpty()) {
+            ParameterSpec subtreeParam = ParameterSpec.builder(ClassName.get(View.class)
+                    .annotated(AnnotationSpec.builder(NonNull.class).build()), SUBTREE, Modifier.FINAL)
+                    .build();
+            addOperationMethod(typeSpecBuilder, BIND_ADDED_VIEWS, generateBindAddedViewsMethod(), subtreeParam);
+        }
+
         // Create unbindViews method
-        MethodSpec unbindMethod = MethodSpec.methodBuilder(UNBIND_VIEWS)
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(param)
-                .addCode(generateUnbindViewsMethod())
-                .build();
+        addOperationMethod(typeSpecBuilder, UNBIND_VIEWS, generateUnbindViewsMethod());
+    }
 
-        typeSpecBuilder.addMethod(publicBindMethod).addMethod(iterativeBindMethod).addMethod(unbindMethod);
+    private boolean hasImplicitRoot() {
+        return isSubtypeOfType(mHostType, Activity.class) || isSubtypeOfType(mHostType, ViewGroup.class) ||
+                isSubtypeOfType(mHostType, Fragment.class) ||
+                isSubtypeOfType(mHostType, android.support.v4.app.Fragment.class);
     }
 
     @NonNull
     private CodeBlock generatePublicBindViewsMethod() throws ShivException {
         CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT);
+                .add(castHost());
 
-        String getViewGroup;
+        // Walk only the host's own views, the content frame for activities, rather than the whole window
         if (isSubtypeOfType(mHostType, Activity.class)) {
-            getViewGroup = ".getWindow().getDecorView().getRootView()";
+            builder.add("$T $N = $N.findViewById($T.ID_ANDROID_CONTENT);\n", View.class, ROOT, FIELD_HOST, Window.class);
         } else if (isSubtypeOfType(mHostType, ViewGroup.class)) {
-            getViewGroup = "";
-        } else if (isSubtypeOfType(mHostType, Fragment.class) || isSubtypeOfType(mHostType, android.support.v4.app.Fragment.class)) {
-            getViewGroup = ".getView().getRootView()";
+            builder.add("$T $N = $N;\n", View.class, ROOT, FIELD_HOST);
         } else {
-            throw new ShivException("Unsupported class: " + mHostType.getQualifiedName());
+            builder.add("$T $N = $N.getView();\n", View.class, ROOT, FIELD_HOST);
         }
-        builder.add("$T $N = ($T) $N$L;\n", ViewGroup.class, VIEW_GROUP, ViewGroup.class, FIELD_HOST, getViewGroup)
-                .add("$L($N, $N);\n", BIND_VIEWS, OBJECT, VIEW_GROUP);
 
-        for (Element element : mElements) {
-            if (!isNullable(element)) {
+        BindRoot bindRoot = mHostType.getAnnotation(BindRoot.class);
+        if (bindRoot != null) {
+            builder.beginControlFlow("if ($N != null)", ROOT)
+                    .add("$N = $N.findViewById($L);\n", ROOT, ROOT, bindRoot.value())
+                    .endControlFlow();
+        }
+
+        return builder.add("$N($N, $N);\n", BIND_VIEWS, FIELD_HOST, ROOT).build();
+    }
+
+    @NonNull
+    private CodeBlock generateRootBindViewsMethod() throws ShivException {
+        CodeBlock.Builder builder = CodeBlock.builder()
+                .add(castHost());
+
+        // Groups keep their array or list across binds, only clearing the slots, so binding never allocates
+        for (Element element : getElements(false)) {
+            int[] groupIds = getGroupIds(element);
+            if (groupIds == null) {
+                continue;
+            }
+            TypeName componentType = TypeName.get(getComponentType(element));
+            if (element.asType().getKind() == TypeKind.ARRAY) {
+                builder.beginControlFlow("if ($N.$N == null || $N.$N.length != $L)", FIELD_HOST, element.getSimpleName(),
+                        FIELD_HOST, element.getSimpleName(), groupIds.length)
+                        .add("$N.$N = new $T[$L];\n", FIELD_HOST, element.getSimpleName(), componentType, groupIds.length)
+                        .nextControlFlow("else")
+                        .add("$T.fill($N.$N, null);\n", Arrays.class, FIELD_HOST, element.getSimpleName())
+                        .endControlFlow();
+            } else {
+                builder.beginControlFlow("if ($N.$N == null || $N.$N.size() != $L)", FIELD_HOST, element.getSimpleName(),
+                        FIELD_HOST, element.getSimpleName(), groupIds.length)
+                        .add("$N.$N = new $T<$T>($T.<$T>nCopies($L, null));\n", FIELD_HOST, element.getSimpleName(),
+                                ArrayList.class, componentType, Collections.class, componentType, groupIds.length)
+                        .nextControlFlow("else")
+                        .add("$T.fill($N.$N, null);\n", Collections.class, FIELD_HOST, element.getSimpleName())
+                        .endControlFlow();
+            }
+        }
+
+        if (!getTargetsById().isEmpty()) {
+            // Recycled even if a bind throws, so the pooled traversal never keeps views from a failed walk
+            builder.add("$T $N = $T.obtain($N);\n", ViewTraversal.class, TRAVERSAL, ViewTraversal.class, ID_COUNT)
+                    .beginControlFlow("try");
+            if (isViewPathsEnabled()) {
+                // Replay the known paths for this layout, walking on a miss and learning again if enabled
+                builder.beginControlFlow("if ($N != null && !$N.replay($N, $N, $N))", ROOT, VIEW_PATHS, FIELD_HOST, ROOT,
+                        TRAVERSAL)
+                        .add("$N($N, $N, $N);\n", BIND_VIEWS, FIELD_HOST, ROOT, TRAVERSAL);
+                if (mProcessor.isLearnViewPathsEnabled()) {
+                    builder.add("$N.learn($N, $N);\n", VIEW_PATHS, ROOT, TRAVERSAL);
+                }
+                builder.endControlFlow();
+
+                int index = 0;
+                for (List<ViewTarget> targets : getTargetsById().values()) {
+                    for (ViewTarget target : targets) {
+                        builder.add(assignTarget(target, CodeBlock.of("$N.getView($L)", TRAVERSAL, index)));
+                    }
+                    index++;
+                }
+            } else {
+                builder.beginControlFlow("if ($N != null)", ROOT)
+                        .add("$N($N, $N, $N);\n", BIND_VIEWS, FIELD_HOST, ROOT, TRAVERSAL)
+                        .endControlFlow();
+            }
+            // A stub that wasn't found has already inflated, so its views are bound from the root directly
+            int index = 0;
+            for (List<ViewTarget> targets : getTargetsById().values()) {
+                if (targets.get(0).position == STUB_POSITION) {
+                    builder.beginControlFlow("if ($N != null && !$N.isBound($L))", ROOT, TRAVERSAL, index)
+                            .add("$N($N, $L, $N);\n", BIND_STUB_VIEWS, FIELD_HOST, targets.get(0).id, ROOT)
+                            .endControlFlow();
+                }
+                index++;
+            }
+            builder.add(generateInstallListenersCode())
+                    .add("reportViewsBound($N, $N.visited, $N - $N.remaining);\n", FIELD_HOST, TRAVERSAL, ID_COUNT, TRAVERSAL)
+                    .nextControlFlow("finally")
+                    .add("$N.recycle();\n", TRAVERSAL)
+                    .endControlFlow();
+        }
+
+        // Lazy views keep the same holder across binds, so references taken by the host stay valid
+        List<Element> lazyElements = getElements(true);
+        for (Element element : lazyElements) {
+            builder.beginControlFlow("if ($N.$N == null)", FIELD_HOST, element.getSimpleName())
+                    .add("$N.$N = new $T();\n", FIELD_HOST, element.getSimpleName(), element.asType())
+                    .endControlFlow();
+        }
+        if (!lazyElements.isEmpty()) {
+            builder.beginControlFlow("if ($N != null)", ROOT);
+            for (Element element : lazyElements) {
+                builder.add("$N.$N.attach($N, $L, $L);\n", FIELD_HOST, element.getSimpleName(), ROOT,
+                        getId(element), isNullable(element));
+            }
+            builder.nextControlFlow("else");
+            for (Element element : lazyElements) {
+                builder.add("$N.$N.reset();\n", FIELD_HOST, element.getSimpleName());
+            }
+            builder.endControlFlow();
+        }
+
+        for (Element element : getElements(false)) {
+            int[] groupIds = getGroupIds(element);
+            if (groupIds != null && !isNullable(element)) {
+                String slot = element.asType().getKind() == TypeKind.ARRAY ? "$N.$N[i]" : "$N.$N.get(i)";
+                builder.beginControlFlow("for (int i = 0; i < $L; i++)", groupIds.length)
+                        .add("if (" + slot + " == null) {\n", FIELD_HOST, element.getSimpleName())
+                        .add("    throw new $T(\"Non-optional group $T.$N is missing view \" + i);\n",
+                                NullPointerException.class, element.getEnclosingElement(), element.getSimpleName())
+                        .add("}\n")
+                        .endControlFlow();
+            } else if (!isNullable(element)) {
                 builder.add("if ($N.$N == null) {\n", FIELD_HOST, element.getSimpleName())
                         .add("    throw new $T(\"Non-optional field $T.$N was not found\");\n", NullPointerException.class,
-                                mHostType, element.getSimpleName())
+                                element.getEnclosingElement(), element.getSimpleName())
                         .add("}\n");
             }
         }
@@ -127,44 +610,516 @@ final class ViewBindingHolder extends AbstractBindingHolder {
     }
 
     @NonNull
-    private CodeBlock generateProtectedBindViewsMethod() throws ShivException {
+    private CodeBlock generateBindAddedViewsMethod() throws ShivException {
         CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT)
-                .add("int size = $N.getChildCount();\n", VIEW_GROUP)
-                .add("int $N = 0;\n", BOUND)
-                .beginControlFlow("for (int i = 0; i < size; i++)")
-                .add("$T $N = $N.getChildAt(i);\n", View.class, VIEW, VIEW_GROUP)
-                .beginControlFlow("if ($N instanceof $T)", VIEW, ViewGroup.class)
-                .add("$N += $N($N, ($T) $N);\n", BOUND, BIND_VIEWS, OBJECT, ViewGroup.class, VIEW)
+                .add(castHost());
+
+        // Groups are only allocated if the host was never bound, otherwise their bound slots are kept
+        for (Element element : getElements(false)) {
+            int[] groupIds = getGroupIds(element);
+            if (groupIds == null) {
+                continue;
+            }
+            TypeName componentType = TypeName.get(getComponentType(element));
+            builder.beginControlFlow("if ($N.$N == null)", FIELD_HOST, element.getSimpleName());
+            if (element.asType().getKind() == TypeKind.ARRAY) {
+                builder.add("$N.$N = new $T[$L];\n", FIELD_HOST, element.getSimpleName(), componentType, groupIds.length);
+            } else {
+                builder.add("$N.$N = new $T<$T>($T.<$T>nCopies($L, null));\n", FIELD_HOST, element.getSimpleName(),
+                        ArrayList.class, componentType, Collections.class, componentType, groupIds.length);
+            }
+            builder.endControlFlow();
+        }
+
+        // Ids whose fields are all bound already are marked found, so the walk stops once the missing ones are bound and
+        // neither their fields nor listeners are touched. Ids with only listeners are always walked, as the views they
+        // were installed on aren't kept
+        builder.add("$T $N = $T.obtain($N);\n", ViewTraversal.class, TRAVERSAL, ViewTraversal.class, ID_COUNT)
+                .beginControlFlow("try");
+        int index = 0;
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            CodeBlock.Builder condition = CodeBlock.builder();
+            for (ViewTarget target : targets) {
+                if (isListener(target)) {
+                    continue;
+                } else if (!condition.build().isEmpty()) {
+                    condition.add(" && ");
+                }
+                condition.add(getBoundCheck(target));
+            }
+            if (!condition.build().isEmpty()) {
+                builder.beginControlFlow("if ($L)", condition.build())
+                        .add("$N.bind($L);\n", TRAVERSAL, index)
+                        .endControlFlow();
+            }
+            index++;
+        }
+        builder.add("int $N = $N.remaining;\n", MISSING, TRAVERSAL)
+                .add("$N($N, $N, $N);\n", isViewPathsEnabled() ? BIND_VIEWS : FIND_ADDED_VIEWS, FIELD_HOST, SUBTREE,
+                        TRAVERSAL);
+
+        // Paths are relative to the whole layout, so are neither replayed nor learned from a subtree. An id found again
+        // may still have some fields bound, which keep their views
+        index = 0;
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            CodeBlock view = CodeBlock.of("$N.getView($L)", TRAVERSAL, index);
+            CodeBlock.Builder assignBuilder = CodeBlock.builder();
+            for (ViewTarget target : targets) {
+                CodeBlock assign = assignTarget(target, view);
+                if (assign.isEmpty()) {
+                    continue;
+                } else if (target.position == STUB_POSITION) {
+                    assignBuilder.add(assign);
+                } else {
+                    assignBuilder.beginControlFlow("if ($L == null)", getSlot(target))
+                            .add(assign)
+                            .endControlFlow();
+                }
+            }
+            if (!assignBuilder.build().isEmpty()) {
+                builder.beginControlFlow("if ($L != null)", view)
+                        .add(assignBuilder.build())
+                        .endControlFlow();
+            }
+            index++;
+        }
+
+        return builder.add(generateInstallListenersCode())
+                .add("reportViewsBound($N, $N.visited, $N - $N.remaining);\n", FIELD_HOST, TRAVERSAL, MISSING,
+                TRAVERSAL)
+                .nextControlFlow("finally")
+                .add("$N.recycle();\n", TRAVERSAL)
                 .endControlFlow()
-                .beginControlFlow("switch ($N.getId())", VIEW);
+                .build();
+    }
 
-        for (Element element : mElements) {
-            builder.add("case $L:\n", element.getAnnotation(BindView.class).value())
-                    .add("    $N.$N = ($T) $N;\n", FIELD_HOST, element.getSimpleName(), element.asType(), VIEW)
-                    .add("    $N++;\n", BOUND)
-                    .add("    break;\n");
+    // Whether a target is already bound, stubs counting as bound once all of their views are
+    @NonNull
+    private CodeBlock getBoundCheck(@NonNull ViewTarget target) {
+        if (target.position == STUB_POSITION) {
+            CodeBlock.Builder builder = CodeBlock.builder();
+            for (Element stubElement : getElementsByStub().get(target.value)) {
+                if (!builder.build().isEmpty()) {
+                    builder.add(" && ");
+                }
+                builder.add("$N.$N != null", FIELD_HOST, stubElement.getSimpleName());
+            }
+            return builder.build();
+        }
+        return CodeBlock.of("$L != null", getSlot(target));
+    }
+
+    // The field, or slot of a group field, bound by a target
+    @NonNull
+    private static CodeBlock getSlot(@NonNull ViewTarget target) {
+        Element element = target.element;
+        if (target.position < 0) {
+            return CodeBlock.of("$N.$N", FIELD_HOST, element.getSimpleName());
+        } else if (element.asType().getKind() == TypeKind.ARRAY) {
+            return CodeBlock.of("$N.$N[$L]", FIELD_HOST, element.getSimpleName(), target.position);
+        } else {
+            return CodeBlock.of("$N.$N.get($L)", FIELD_HOST, element.getSimpleName(), target.position);
+        }
+    }
+
+    @NonNull
+    private CodeBlock generateProtectedBindViewsMethod(@NonNull String methodName, boolean collectOnly)
+            throws ShivException {
+        if (mProcessor.isIterativeViewTraversal()) {
+            // Same depth-first order as the recursive walk, using the traversal's stack instead of the thread's
+            return CodeBlock.builder()
+                    .add("$T $N = $N;\n", View.class, VIEW, ROOT)
+                    .beginControlFlow("while ($N != null)", VIEW)
+                    .add(generateBindViewCode(collectOnly))
+                    .beginControlFlow("if ($N.remaining == 0)", TRAVERSAL)
+                    .add("break;\n")
+                    .endControlFlow()
+                    .beginControlFlow("if ($N instanceof $T)", VIEW, ViewGroup.class)
+                    .add("$N.push(($T) $N);\n", TRAVERSAL, ViewGroup.class, VIEW)
+                    .endControlFlow()
+                    .add("$N = $N.next();\n", VIEW, TRAVERSAL)
+                    .endControlFlow()
+                    .build();
         }
 
-        builder.endControlFlow()
-                .beginControlFlow("if ($N >= $N)", BOUND, VIEW_COUNT)
-                .add("break;\n")
+        // Found state is shared across the whole walk, so every level stops once all ids are bound
+        return CodeBlock.builder()
+                .add(generateBindViewCode(collectOnly))
+                .beginControlFlow("if ($N instanceof $T)", VIEW, ViewGroup.class)
+                .add("$T $N = ($T) $N;\n", ViewGroup.class, VIEW_GROUP, ViewGroup.class, VIEW)
+                .add("int size = $N.getChildCount();\n", VIEW_GROUP)
+                .beginControlFlow("for (int i = 0; i < size && $N.remaining > 0; i++)", TRAVERSAL)
+                .add("$N($N, $N.getChildAt(i), $N);\n", methodName, FIELD_HOST, VIEW_GROUP, TRAVERSAL)
                 .endControlFlow()
                 .endControlFlow()
-                .add("return $N;\n", BOUND);
+                .build();
+    }
+
+    // Assigns fields as views are found, unless only collecting them in the traversal to be assigned afterwards
+    @NonNull
+    private CodeBlock generateBindViewCode(boolean collectOnly) {
+        CodeBlock.Builder builder = CodeBlock.builder()
+                .add("$N.visited++;\n", TRAVERSAL);
+
+        boolean tableDispatch = isTableDispatch();
+        collectOnly |= isViewPathsEnabled();
+        if (tableDispatch && collectOnly) {
+            // Fields are assigned from the traversal once it is known whether the walk or a replay found them
+            return builder.add("int $N = $N.indexOf($N.getId());\n", INDEX, ID_TABLE, VIEW)
+                    .beginControlFlow("if ($N >= 0)", INDEX)
+                    .add("$N.bind($N, $N);\n", TRAVERSAL, INDEX, VIEW)
+                    .endControlFlow()
+                    .build();
+        } else if (tableDispatch) {
+            builder.beginControlFlow("switch ($N.indexOf($N.getId()))", ID_TABLE, VIEW);
+        } else {
+            builder.beginControlFlow("switch ($N.getId())", VIEW);
+        }
+
+        // The first view found for an id wins, matching findViewById for repeated includes
+        int index = 0;
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            CodeBlock label = tableDispatch ? CodeBlock.of("$L", index) : targets.get(0).id;
+            if (collectOnly) {
+                builder.add("case $L:\n", label)
+                        .add("    $N.bind($L, $N);\n", TRAVERSAL, index++, VIEW)
+                        .add("    break;\n");
+                continue;
+            }
+
+            // Views with listeners are kept in the traversal, for installing the listener after the walk
+            boolean listener = hasListener(targets, CLICK_POSITION) || hasListener(targets, LONG_CLICK_POSITION);
+            boolean assigns = false;
+            for (ViewTarget target : targets) {
+                assigns |= !isListener(target);
+            }
+            builder.add("case $L:\n", label);
+            if (!assigns) {
+                builder.add("    $N.bind($L, $N);\n", TRAVERSAL, index++, VIEW)
+                        .add("    break;\n");
+                continue;
+            }
+            if (listener) {
+                builder.add("    if ($N.bind($L, $N)) {\n", TRAVERSAL, index++, VIEW);
+            } else {
+                builder.add("    if ($N.bind($L)) {\n", TRAVERSAL, index++);
+            }
+            for (ViewTarget target : targets) {
+                if (!isListener(target)) {
+                    builder.add("        ").add(assignTarget(target, CodeBlock.of("$N", VIEW)));
+                }
+            }
+            builder.add("    }\n")
+                    .add("    break;\n");
+        }
+
+        return builder.endControlFlow().build();
+    }
+
+    // One listener per bind is shared by every view with a click or long click method, created once one is found
+    @NonNull
+    private CodeBlock generateInstallListenersCode() {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        if (getListenerElements().isEmpty()) {
+            return builder.build();
+        }
 
+        builder.add("$N $N = null;\n", VIEW_LISTENER, LISTENER);
+        int index = 0;
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            boolean click = hasListener(targets, CLICK_POSITION);
+            boolean longClick = hasListener(targets, LONG_CLICK_POSITION);
+            if (click || longClick) {
+                builder.beginControlFlow("if ($N.getView($L) != null)", TRAVERSAL, index)
+                        .beginControlFlow("if ($N == null)", LISTENER)
+                        .add("$N = new $N($N);\n", LISTENER, VIEW_LISTENER, FIELD_HOST)
+                        .endControlFlow();
+                if (click) {
+                    builder.add("$N.getView($L).setOnClickListener($N);\n", TRAVERSAL, index, LISTENER);
+                }
+                if (longClick) {
+                    builder.add("$N.getView($L).setOnLongClickListener($N);\n", TRAVERSAL, index, LISTENER);
+                }
+                builder.endControlFlow();
+            }
+            index++;
+        }
         return builder.build();
     }
 
+    private void addListenerClass(@NonNull TypeSpec.Builder typeSpecBuilder, @NonNull ParameterSpec hostParam)
+            throws ShivException {
+        TypeSpec.Builder listenerBuilder = TypeSpec.classBuilder(VIEW_LISTENER)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addField(FieldSpec.builder(TypeName.get(mHostType.asType())
+                        .annotated(AnnotationSpec.builder(NonNull.class).build()), HOST, Modifier.PRIVATE, Modifier.FINAL)
+                        .build())
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(hostParam)
+                        .addStatement("this.$N = $N", HOST, FIELD_HOST)
+                        .build());
+
+        // Ids calling the same methods share one case body
+        Map<CodeBlock, List<CodeBlock>> clickCases = new LinkedHashMap<>();
+        Map<CodeBlock, List<CodeBlock>> longClickCases = new LinkedHashMap<>();
+        for (List<ViewTarget> targets : getTargetsById().values()) {
+            if (hasListener(targets, CLICK_POSITION)) {
+                CodeBlock.Builder body = CodeBlock.builder();
+                for (ViewTarget target : targets) {
+                    if (target.position == CLICK_POSITION) {
+                        body.add("    ").add(callListener(target)).add(";\n");
+                    }
+                }
+                addCase(clickCases, body.add("    break;\n").build(), targets.get(0).id);
+            }
+
+            ViewTarget longClickTarget = null;
+            for (ViewTarget target : targets) {
+                if (target.position != LONG_CLICK_POSITION) {
+                    continue;
+                } else if (longClickTarget != null) {
+                    throw new ShivException("Multiple long click methods for view " + target.id + ": " +
+                            longClickTarget.element.getSimpleName() + ", " + target.element.getSimpleName());
+                }
+                longClickTarget = target;
+            }
+            if (longClickTarget != null) {
+                CodeBlock body;
+                if (((ExecutableElement) longClickTarget.element).getReturnType().getKind() == TypeKind.BOOLEAN) {
+                    body = CodeBlock.builder().add("    return ").add(callListener(longClickTarget)).add(";\n").build();
+                } else {
+                    body = CodeBlock.builder().add("    ").add(callListener(longClickTarget)).add(";\n")
+                            .add("    return true;\n").build();
+                }
+                addCase(longClickCases, body, longClickTarget.id);
+            }
+        }
+        boolean click = !clickCases.isEmpty();
+        boolean longClick = !longClickCases.isEmpty();
+        CodeBlock.Builder clickBuilder = generateSwitch(clickCases);
+        CodeBlock.Builder longClickBuilder = generateSwitch(longClickCases);
+
+        if (click) {
+            listenerBuilder.addSuperinterface(View.OnClickListener.class)
+                    .addMethod(MethodSpec.methodBuilder("onClick")
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .addParameter(View.class, VIEW)
+                            .addCode(clickBuilder.endControlFlow().build())
+                            .build());
+        }
+        if (longClick) {
+            listenerBuilder.addSuperinterface(View.OnLongClickListener.class)
+                    .addMethod(MethodSpec.methodBuilder("onLongClick")
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(boolean.class)
+                            .addParameter(View.class, VIEW)
+                            .addCode(longClickBuilder.endControlFlow().add("return false;\n").build())
+                            .build());
+        }
+        typeSpecBuilder.addType(listenerBuilder.build());
+    }
+
+    private static void addCase(@NonNull Map<CodeBlock, List<CodeBlock>> cases, @NonNull CodeBlock body,
+                                @NonNull CodeBlock id) {
+        List<CodeBlock> ids = cases.get(body);
+        if (ids == null) {
+            ids = new ArrayList<>();
+            cases.put(body, ids);
+        }
+        ids.add(id);
+    }
+
+    // Cases are keyed by their body, with a label for each id falling through to it
+    @NonNull
+    private static CodeBlock.Builder generateSwitch(@NonNull Map<CodeBlock, List<CodeBlock>> cases) {
+        CodeBlock.Builder builder = CodeBlock.builder().beginControlFlow("switch ($N.getId())", VIEW);
+        for (Map.Entry<CodeBlock, List<CodeBlock>> entry : cases.entrySet()) {
+            for (CodeBlock id : entry.getValue()) {
+                builder.add("case $L:\n", id);
+            }
+            builder.add(entry.getKey());
+        }
+        return builder;
+    }
+
+    @NonNull
+    private static CodeBlock callListener(@NonNull ViewTarget target) {
+        ExecutableElement method = (ExecutableElement) target.element;
+        if (method.getParameters().isEmpty()) {
+            return CodeBlock.of("$N.$N()", HOST, method.getSimpleName());
+        }
+        TypeMirror paramType = method.getParameters().get(0).asType();
+        if (paramType.toString().equals(View.class.getCanonicalName())) {
+            return CodeBlock.of("$N.$N($N)", HOST, method.getSimpleName(), VIEW);
+        }
+        return CodeBlock.of("$N.$N(($T) $N)", HOST, method.getSimpleName(), paramType, VIEW);
+    }
+
+    // The stub's listener replaces any other inflate listener set on it, and binds from the inflated view. Each host
+    // has one listener for all of its stubs, kept so unbinding can detach it from a stub that inflates later
+    private void addStubBindings(@NonNull TypeSpec.Builder typeSpecBuilder, @NonNull ParameterSpec hostParam) {
+        ParameterSpec stubIdParam = ParameterSpec.builder(int.class, STUB_ID, Modifier.FINAL).build();
+        TypeName hostType = TypeName.get(mHostType.asType());
+        ClassName listenerType = ClassName.bestGuess(STUB_LISTENER);
+
+        // Views are bound and unbound on the thread that owns them, so each thread keeps its own listeners, with no
+        // lock, and a host is only found again by unbinding on the thread it was bound on
+        TypeName mapType = ParameterizedTypeName.get(ClassName.get(Map.class), TypeName.get(Object.class), listenerType);
+        TypeName localType = ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), mapType);
+        typeSpecBuilder.addField(FieldSpec.builder(localType, STUB_LISTENERS, Modifier.PRIVATE, Modifier.STATIC,
+                Modifier.FINAL).initializer("$L", TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(localType)
+                .addMethod(MethodSpec.methodBuilder("initialValue")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PROTECTED)
+                        .returns(mapType)
+                        .addStatement("return new $T<$T, $T>()", WeakHashMap.class, Object.class, listenerType)
+                        .build())
+                .build()).build());
+
+        typeSpecBuilder.addMethod(MethodSpec.methodBuilder(GET_STUB_LISTENER)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(listenerType.annotated(AnnotationSpec.builder(NonNull.class).build()))
+                .addParameter(hostParam)
+                .addCode(CodeBlock.builder()
+                        .add("$T $N = $N.get();\n", mapType, LISTENERS, STUB_LISTENERS)
+                        .add("$T $N = $N.get($N);\n", listenerType, LISTENER, LISTENERS, FIELD_HOST)
+                        .beginControlFlow("if ($N == null)", LISTENER)
+                        .add("$N = new $T($N);\n", LISTENER, listenerType, FIELD_HOST)
+                        .add("$N.put($N, $N);\n", LISTENERS, FIELD_HOST, LISTENER)
+                        .endControlFlow()
+                        .add("return $N;\n", LISTENER)
+                        .build())
+                .build());
+
+        CodeBlock.Builder stubBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($N instanceof $T)", VIEW, ViewStub.class)
+                .add("(($T) $N).setOnInflateListener($N($N));\n", ViewStub.class, VIEW, GET_STUB_LISTENER, FIELD_HOST)
+                .nextControlFlow("else if ($N != null)", VIEW)
+                .add("// Already inflated. The inflated view takes the stub's inflatedId, or keeps its layout id if that\n")
+                .add("// is unset, so it is only found by the stub's id when that id matches\n")
+                .add("$N($N, $N, $N);\n", BIND_STUB_VIEWS, FIELD_HOST, STUB_ID, VIEW)
+                .endControlFlow();
+        typeSpecBuilder.addMethod(MethodSpec.methodBuilder(BIND_STUB)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(hostParam)
+                .addParameter(stubIdParam)
+                .addParameter(ParameterSpec.builder(ClassName.get(View.class)
+                        .annotated(AnnotationSpec.builder(Nullable.class).build()), VIEW, Modifier.FINAL).build())
+                .addCode(stubBuilder.build())
+                .build());
+
+        CodeBlock.Builder viewsBuilder = CodeBlock.builder();
+        boolean first = true;
+        for (Map.Entry<Integer, List<Element>> entry : getElementsByStub().entrySet()) {
+            if (first) {
+                viewsBuilder.beginControlFlow("if ($N == $L)", STUB_ID, entry.getKey());
+                first = false;
+            } else {
+                viewsBuilder.nextControlFlow("else if ($N == $L)", STUB_ID, entry.getKey());
+            }
+            for (Element element : entry.getValue()) {
+                viewsBuilder.add("$N.$N = ($T) $N.findViewById($L);\n", FIELD_HOST, element.getSimpleName(),
+                        element.asType(), INFLATED, getId(element));
+            }
+        }
+        typeSpecBuilder.addMethod(MethodSpec.methodBuilder(BIND_STUB_VIEWS)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(hostParam)
+                .addParameter(stubIdParam)
+                .addParameter(ParameterSpec.builder(ClassName.get(View.class)
+                        .annotated(AnnotationSpec.builder(NonNull.class).build()), INFLATED, Modifier.FINAL).build())
+                .addCode(viewsBuilder.endControlFlow().build())
+                .build());
+
+        // The host is held weakly, so neither the listener map nor a stub that outlives its host keeps it alive
+        TypeName hostReferenceType = ParameterizedTypeName.get(ClassName.get(WeakReference.class), hostType);
+        typeSpecBuilder.addType(TypeSpec.classBuilder(STUB_LISTENER)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addSuperinterface(ViewStub.OnInflateListener.class)
+                .addField(FieldSpec.builder(hostReferenceType.annotated(AnnotationSpec.builder(NonNull.class).build()),
+                        HOST, Modifier.PRIVATE, Modifier.FINAL).build())
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(hostParam)
+                        .addStatement("this.$N = new $T($N)", HOST, hostReferenceType, FIELD_HOST)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("onInflate")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ViewStub.class, STUB)
+                        .addParameter(View.class, INFLATED)
+                        .addCode(CodeBlock.builder()
+                                .add("$T $N = $N.get();\n", hostType, FIELD_HOST, HOST)
+                                .beginControlFlow("if ($N != null)", FIELD_HOST)
+                                .add("$N($N, $N.getId(), $N);\n", BIND_STUB_VIEWS, FIELD_HOST, STUB, INFLATED)
+                                .endControlFlow()
+                                .build())
+                        .build())
+                .build());
+    }
+
     @NonNull
     private CodeBlock generateUnbindViewsMethod() throws ShivException {
-        CodeBlock.Builder builder = CodeBlock.builder()
-                .add("$T $N = ($T) $N;\n", mHostType, FIELD_HOST, mHostType, OBJECT);
+        CodeBlock.Builder builder = createCodeBuilder(Binder.UNBIND_VIEWS, UNBIND_VIEWS, OBJECT)
+                .add(castHost());
 
         for (Element element : mElements) {
-            builder.add("$N.$N = null;\n", FIELD_HOST, element.getSimpleName());
+            if (element.getKind() != ElementKind.FIELD) {
+                continue;
+            } else if (isLazy(element)) {
+                builder.beginControlFlow("if ($N.$N != null)", FIELD_HOST, element.getSimpleName())
+                        .add("$N.$N.reset();\n", FIELD_HOST, element.getSimpleName())
+                        .endControlFlow();
+            } else if (getGroupIds(element) != null) {
+                builder.beginControlFlow("if ($N.$N != null)", FIELD_HOST, element.getSimpleName())
+                        .add("$T.fill($N.$N, null);\n", element.asType().getKind() == TypeKind.ARRAY ? Arrays.class :
+                                Collections.class, FIELD_HOST, element.getSimpleName())
+                        .endControlFlow();
+            } else {
+                builder.add("$N.$N = null;\n", FIELD_HOST, element.getSimpleName());
+            }
+        }
+
+        if (!getElementsByStub().isEmpty()) {
+            // A stub inflated after unbinding no longer binds into the host
+            builder.add("$T $N = $N.get().remove($N);\n", ClassName.bestGuess(STUB_LISTENER), LISTENER,
+                    STUB_LISTENERS, FIELD_HOST)
+                    .beginControlFlow("if ($N != null)", LISTENER)
+                    .add("$N.$N.clear();\n", LISTENER, HOST)
+                    .endControlFlow();
         }
 
         return builder.build();
     }
+
+
+    // A field, or one slot of a group field, bound from the view with the given id
+    private static final class ViewTarget {
+
+        @NonNull
+        final Element element;
+
+        @NonNull
+        final CodeBlock id;
+
+        // Constant id value, or 0 when the id is given by name
+        final int value;
+
+        @Nullable
+        final String idName;
+
+        // Slot within a group field, -1 for a single view field or STUB_POSITION for a stub
+        final int position;
+
+
+        ViewTarget(@NonNull Element element, @NonNull CodeBlock id, int value, @Nullable String idName, int position) {
+            this.element = element;
+            this.id = id;
+            this.value = value;
+            this.idName = idName;
+            this.position = position;
+        }
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static me.oriley.shiv.TestViews.group;
+import static me.oriley.shiv.TestViews.view;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the generated bindAddedViews against subtrees holding views with ids that are already bound, for each walk
+ * the processor can generate.
+ */
+public final class BindAddedViewsTest {
+
+    private static final String HOLDER = "test.Holder";
+    private static final String SOURCE = "package test;\n" +
+            "import android.view.View;\n" +
+            "import me.oriley.shiv.*;\n" +
+            "public class Holder {\n" +
+            "    @BindView(1) View title;\n" +
+            "    @BindView(2) View button;\n" +
+            "    @OnClick(2) void onButton() {}\n" +
+            "}\n";
+
+
+    @Test
+    public void boundFieldsAreKeptWithSwitchDispatch() throws Exception {
+        checkBoundFieldsAreKept();
+    }
+
+    @Test
+    public void boundFieldsAreKeptWithTableDispatch() throws Exception {
+        checkBoundFieldsAreKept("-Ashiv.idDispatch=table");
+    }
+
+    @Test
+    public void boundFieldsAreKeptWithLearnedPaths() throws Exception {
+        checkBoundFieldsAreKept("-Ashiv.viewTraversal=iterative", "-Ashiv.learnViewPaths=true",
+                "-Ashiv.idDispatch=table");
+    }
+
+    @Test
+    public void unboundFieldsAreBoundFromAddedViews() throws Exception {
+        ClassLoader loader = TestCompiler.compile(HOLDER, SOURCE);
+        Object host = loader.loadClass(HOLDER).newInstance();
+        Binder binder = (Binder) loader.loadClass(HOLDER + Binder.CLASS_SUFFIX).newInstance();
+
+        TestViews.TestView title = view(1);
+        binder.bindViews(host, group(0, title, view(2)));
+        field(host, "title").set(host, null);
+
+        TestViews.TestView addedTitle = view(1);
+        TestViews.TestView addedButton = view(2);
+        binder.bindAddedViews(host, group(10, addedTitle, addedButton));
+        assertSame(addedTitle, field(host, "title").get(host));
+        assertNull(addedButton.mClickListener);
+    }
+
+    private static void checkBoundFieldsAreKept(@NonNull String... options) throws Exception {
+        ClassLoader loader = TestCompiler.compile(HOLDER, SOURCE, options);
+        Object host = loader.loadClass(HOLDER).newInstance();
+        Binder binder = (Binder) loader.loadClass(HOLDER + Binder.CLASS_SUFFIX).newInstance();
+
+        TestViews.TestView title = view(1);
+        TestViews.TestView button = view(2);
+        binder.bindViews(host, group(0, title, button));
+        assertSame(title, field(host, "title").get(host));
+        assertSame(button, field(host, "button").get(host));
+        assertNotNull(button.mClickListener);
+
+        // Same ids again, as in a list row added after binding
+        TestViews.TestView addedTitle = view(1);
+        TestViews.TestView addedButton = view(2);
+        binder.bindAddedViews(host, group(10, addedTitle, addedButton));
+        assertSame(title, field(host, "title").get(host));
+        assertSame(button, field(host, "button").get(host));
+        assertNull(addedButton.mClickListener);
+    }
+
+    @NonNull
+    private static Field field(@NonNull Object host, @NonNull String name) throws NoSuchFieldException {
+        Field field = host.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
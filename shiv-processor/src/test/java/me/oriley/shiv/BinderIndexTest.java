@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import org.junit.Test;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the generated index covers binders from every processing round.
+ */
+public final class BinderIndexTest {
+
+    private static final String INDEX = "test.TestIndex";
+    private static final String SOURCE = "package test;\n" +
+            "import android.view.View;\n" +
+            "import me.oriley.shiv.*;\n" +
+            "public class First {\n" +
+            "    @BindView(1) View title;\n" +
+            "}\n";
+    private static final String GENERATED_SOURCE = "package test;\n" +
+            "import android.view.View;\n" +
+            "import me.oriley.shiv.*;\n" +
+            "public class Second {\n" +
+            "    @BindView(2) View button;\n" +
+            "}\n";
+
+
+    @Test
+    public void indexIncludesBindersFromLaterRounds() throws Exception {
+        ClassLoader loader = TestCompiler.compile(Collections.singletonList(new SecondHostProcessor()), "test.First",
+                SOURCE, "-Ashiv.index=" + INDEX);
+        BinderIndex index = (BinderIndex) loader.loadClass(INDEX).newInstance();
+        assertNotNull(index.getBinder(loader.loadClass("test.First")));
+        assertNotNull(index.getBinder(loader.loadClass("test.Second")));
+        assertNull(index.getBinder(Object.class));
+    }
+
+    // Generates a second host in the first round, so its bindings are only seen in the next one
+    private static final class SecondHostProcessor extends AbstractProcessor {
+
+        private boolean mGenerated;
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return Collections.singleton("*");
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(@NonNull Set<? extends TypeElement> annotations, @NonNull RoundEnvironment env) {
+            if (mGenerated) {
+                return false;
+            }
+            mGenerated = true;
+            try (Writer writer = processingEnv.getFiler().createSourceFile("test.Second").openWriter()) {
+                writer.write(GENERATED_SOURCE);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return false;
+        }
+    }
+}
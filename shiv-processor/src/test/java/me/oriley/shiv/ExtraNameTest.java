@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks extra field names, which name the generated key constants and builder setters.
+ */
+public final class ExtraNameTest {
+
+    private static final String HOSTS = "test.Hosts";
+
+
+    @Test
+    public void inheritedNameIsRejected() throws Exception {
+        List<String> errors = TestCompiler.errors(HOSTS, source("count", "count"));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains("test.Hosts.Sub.count conflicts with test.Hosts.Base.count"));
+    }
+
+    @Test
+    public void inheritedNameDifferingByCaseIsRejected() throws Exception {
+        List<String> errors = TestCompiler.errors(HOSTS, source("count", "COUNT"));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains("test.Hosts.Sub.COUNT conflicts with test.Hosts.Base.count"));
+    }
+
+    @Test
+    public void distinctNamesCompile() throws Exception {
+        assertTrue(TestCompiler.errors(HOSTS, source("count", "limit")).isEmpty());
+    }
+
+    @NonNull
+    private static String source(@NonNull String baseName, @NonNull String subName) {
+        return "package test;\n" +
+                "import android.app.Activity;\n" +
+                "import me.oriley.shiv.*;\n" +
+                "public class Hosts {\n" +
+                "    public static class Base extends Activity {\n" +
+                "        @BindExtra(\"base\") int " + baseName + ";\n" +
+                "    }\n" +
+                "    public static class Sub extends Base {\n" +
+                "        @BindExtra(\"sub\") int " + subName + ";\n" +
+                "    }\n" +
+                "}\n";
+    }
+}
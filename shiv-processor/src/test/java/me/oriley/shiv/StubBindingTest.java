@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewStub;
+import org.junit.Test;
+import org.objenesis.ObjenesisStd;
+
+import java.lang.reflect.Field;
+
+import static me.oriley.shiv.TestViews.group;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the generated stub inflate listener, which binds views from a stub once it inflates until the host is unbound.
+ */
+public final class StubBindingTest {
+
+    private static final String HOLDER = "test.Holder";
+    private static final String SOURCE = "package test;\n" +
+            "import android.view.View;\n" +
+            "import me.oriley.shiv.*;\n" +
+            "public class Holder {\n" +
+            "    @BindView(value = 5, stub = 4) View panel;\n" +
+            "}\n";
+
+
+    @Test
+    public void inflatedStubBindsUntilUnbound() throws Exception {
+        ClassLoader loader = TestCompiler.compile(HOLDER, SOURCE);
+        Object host = loader.loadClass(HOLDER).newInstance();
+        Binder binder = (Binder) loader.loadClass(HOLDER + Binder.CLASS_SUFFIX).newInstance();
+
+        ViewStub stub = stub(4);
+        binder.bindViews(host, group(0, stub));
+        ViewStub.OnInflateListener listener = (ViewStub.OnInflateListener) field(stub, ViewStub.class,
+                "mInflateListener").get(stub);
+        assertNotNull(listener);
+
+        // Rebinding the same host reuses its listener
+        ViewStub other = stub(4);
+        binder.bindViews(host, group(0, other));
+        assertSame(listener, field(other, ViewStub.class, "mInflateListener").get(other));
+
+        // The inflated layout is the panel itself, which finds itself by id
+        View panel = inflated(5);
+        listener.onInflate(stub, panel);
+        assertSame(panel, field(host, host.getClass(), "panel").get(host));
+
+        binder.unbindViews(host);
+        listener.onInflate(stub, inflated(5));
+        assertNull(field(host, host.getClass(), "panel").get(host));
+    }
+
+    // Framework views with their id set directly, so the framework's own getId and findViewById work
+    @NonNull
+    private static ViewStub stub(int id) throws Exception {
+        ViewStub stub = new ObjenesisStd().newInstance(ViewStub.class);
+        field(stub, View.class, "mID").setInt(stub, id);
+        return stub;
+    }
+
+    @NonNull
+    private static View inflated(int id) throws Exception {
+        View view = new ObjenesisStd().newInstance(View.class);
+        field(view, View.class, "mID").setInt(view, id);
+        return view;
+    }
+
+    @NonNull
+    private static Field field(@NonNull Object object, @NonNull Class<?> type, @NonNull String name)
+            throws NoSuchFieldException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+
+import javax.annotation.processing.Processor;
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiles test sources with the processor in-process, so generated binders can be loaded and run on the JVM.
+ */
+final class TestCompiler {
+
+    private TestCompiler() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    // Loader for the compiled sources and their binders, or an assertion error listing the compiler's messages
+    @NonNull
+    static ClassLoader compile(@NonNull String className, @NonNull String source, @NonNull String... options)
+            throws IOException {
+        return compile(Collections.<Processor>emptyList(), className, source, options);
+    }
+
+    // As above, with other processors running alongside, e.g. to generate sources for later rounds
+    @NonNull
+    static ClassLoader compile(@NonNull List<? extends Processor> processors, @NonNull String className,
+                               @NonNull String source, @NonNull String... options) throws IOException {
+        File output = Files.createTempDirectory("shiv").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!run(output, diagnostics, processors, className, source, options)) {
+            throw new AssertionError("Compilation failed: " + diagnostics.getDiagnostics());
+        }
+        return new URLClassLoader(new URL[]{output.toURI().toURL()}, TestCompiler.class.getClassLoader());
+    }
+
+    // Errors reported by the processor or compiler, empty if the sources compiled
+    @NonNull
+    static List<String> errors(@NonNull String className, @NonNull String source, @NonNull String... options)
+            throws IOException {
+        File output = Files.createTempDirectory("shiv").toFile();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (run(output, diagnostics, Collections.<Processor>emptyList(), className, source, options)) {
+            return Collections.emptyList();
+        }
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return errors;
+    }
+
+    private static boolean run(@NonNull File output, @NonNull DiagnosticCollector<JavaFileObject> diagnostics,
+                               @NonNull List<? extends Processor> processors, @NonNull String className, @NonNull final String source, @NonNull String... options) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') +
+                JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        List<String> arguments = new ArrayList<>(Arrays.asList("-d", output.getPath(), "-classpath",
+                System.getProperty("java.class.path"), "-nowarn"));
+        arguments.addAll(Arrays.asList(options));
+
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, arguments, null,
+                Collections.singletonList(file));
+        List<Processor> allProcessors = new ArrayList<>();
+        allProcessors.add(new ShivProcessor());
+        allProcessors.addAll(processors);
+        task.setProcessors(allProcessors);
+        return task.call();
+    }
+}
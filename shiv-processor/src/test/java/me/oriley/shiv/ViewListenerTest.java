@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static me.oriley.shiv.TestViews.group;
+import static me.oriley.shiv.TestViews.view;
+import static org.junit.Assert.*;
+
+/**
+ * Runs click dispatch through the generated listener, including ids that share a method.
+ */
+public final class ViewListenerTest {
+
+    private static final String HOLDER = "test.Holder";
+    private static final String SOURCE = "package test;\n" +
+            "import android.view.View;\n" +
+            "import me.oriley.shiv.*;\n" +
+            "import java.util.*;\n" +
+            "public class Holder {\n" +
+            "    public final List<Integer> clicks = new ArrayList<>();\n" +
+            "    @OnClick({1, 2}) void onEither(View view) { clicks.add(view.getId()); }\n" +
+            "    @OnClick(3) void onThird() { clicks.add(-3); }\n" +
+            "}\n";
+
+
+    @Test
+    public void sharedMethodIsCalledForEachId() throws Exception {
+        ClassLoader loader = TestCompiler.compile(HOLDER, SOURCE);
+        Object host = loader.loadClass(HOLDER).newInstance();
+        Binder binder = (Binder) loader.loadClass(HOLDER + Binder.CLASS_SUFFIX).newInstance();
+
+        TestViews.TestView first = view(1);
+        TestViews.TestView second = view(2);
+        TestViews.TestView third = view(3);
+        binder.bindViews(host, group(0, first, second, third));
+        assertNotNull(first.mClickListener);
+        assertSame(first.mClickListener, second.mClickListener);
+        assertSame(first.mClickListener, third.mClickListener);
+
+        first.mClickListener.onClick(first);
+        second.mClickListener.onClick(second);
+        third.mClickListener.onClick(third);
+        first.mClickListener.onClick(view(4));
+
+        @SuppressWarnings("unchecked")
+        List<Integer> clicks = (List<Integer>) host.getClass().getField("clicks").get(host);
+        assertEquals(3, clicks.size());
+        assertEquals(1, (int) clicks.get(0));
+        assertEquals(2, (int) clicks.get(1));
+        assertEquals(-3, (int) clicks.get(2));
+    }
+}
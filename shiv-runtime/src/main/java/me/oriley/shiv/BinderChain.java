@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * All binders for a concrete host class, ordered superclass first and pre-filtered per operation.
+ */
+final class BinderChain {
+
+    private static final Binder[] EMPTY = new Binder[0];
+
+    @NonNull
+    private final Binder[][] mBinders = new Binder[Binder.OPERATION_COUNT][];
+
+    @NonNull
+    private final Binder[] mAll;
+
+
+    BinderChain(@NonNull List<Binder> binders) {
+        mAll = binders.isEmpty() ? EMPTY : binders.toArray(new Binder[binders.size()]);
+        for (int i = 0; i < Binder.OPERATION_COUNT; i++) {
+            int operation = 1 << i;
+            int count = 0;
+            for (Binder binder : binders) {
+                if ((binder.getOperations() & operation) != 0) {
+                    count++;
+                }
+            }
+
+            Binder[] operationBinders = count > 0 ? new Binder[count] : EMPTY;
+            count = 0;
+            for (Binder binder : binders) {
+                if ((binder.getOperations() & operation) != 0) {
+                    operationBinders[count++] = binder;
+                }
+            }
+            mBinders[i] = operationBinders;
+        }
+    }
+
+
+    @NonNull
+    Binder[] get(int operation) {
+        return mBinders[Integer.numberOfTrailingZeros(operation)];
+    }
+
+    @NonNull
+    Binder[] getAll() {
+        return mAll;
+    }
+}
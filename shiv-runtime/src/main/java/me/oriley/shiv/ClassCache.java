@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent cache keyed on class. Lookups of resolved entries never lock, and each
+ * value is created exactly once, with racing threads waiting on the creating thread.
+ * Values for classes from other class loaders are kept per loader, in bounded maps of the most
+ * recently used, and can be released with {@link #clear(ClassLoader)}.
+ */
+abstract class ClassCache<V> {
+
+    private static final int PENDING = 0;
+    private static final int RESOLVED = 1;
+    private static final int FAILED = 2;
+    private static final int MAX_FOREIGN_VALUES = 32;
+
+    @Nullable
+    private static final ClassLoader CLASS_LOADER = ClassCache.class.getClassLoader();
+
+    @NonNull
+    private final ConcurrentHashMap<Class<?>, Entry<V>> mEntries = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ForeignEntries mForeignEntries = new ForeignEntries();
+
+
+    @Nullable
+    abstract V create(@NonNull Class<?> cls);
+
+    @Nullable
+    final V get(@NonNull Class<?> cls) {
+        if (cls.getClassLoader() != CLASS_LOADER) {
+            return mForeignEntries.get(cls);
+        }
+
+        while (true) {
+            Entry<V> entry = mEntries.get(cls);
+            if (entry == null) {
+                Entry<V> created = new Entry<>();
+                entry = mEntries.putIfAbsent(cls, created);
+                if (entry == null) {
+                    entry = created;
+                    try {
+                        entry.resolve(create(cls));
+                    } catch (RuntimeException | Error e) {
+                        // Allow a later lookup to try again rather than caching the failure
+                        mEntries.remove(cls, entry);
+                        entry.fail();
+                        throw e;
+                    }
+                }
+            }
+
+            if (entry.await()) {
+                return entry.mValue;
+            }
+        }
+    }
+
+    final void clear(@NonNull ClassLoader classLoader) {
+        mForeignEntries.clear(classLoader);
+    }
+
+    // Lookups already creating a value still complete, but their results are not kept
+    final void clear() {
+        mEntries.clear();
+        mForeignEntries.clear();
+    }
+
+    // Values are kept strongly, in a small recently used map for each loader, so a foreign host only has its value
+    // created again once it has been evicted. Values reference classes from their loader and keep it reachable while
+    // cached, so the bound limits what each loader can hold and clearCache releases a loader that is being unloaded.
+    // The cache itself only refers to loaders weakly, and the entry of a collected loader is pruned when another
+    // loader is added.
+    private final class ForeignEntries {
+
+        @NonNull
+        private final Object mNull = new Object();
+
+        @NonNull
+        private final LoaderValues mBootstrapValues = new LoaderValues(null);
+
+        // Copied on write, as there are rarely more than a few foreign loaders
+        @NonNull
+        private volatile LoaderValues[] mLoaders = new LoaderValues[0];
+
+
+        @Nullable
+        V get(@NonNull Class<?> cls) {
+            LoaderValues values = getValues(cls.getClassLoader());
+            String name = cls.getName();
+            Object value = values.get(name);
+            if (value == null) {
+                // Threads racing here may each create a value, the first one stored is kept by later lookups
+                value = create(cls);
+                value = values.putIfAbsent(name, value != null ? value : mNull);
+            }
+
+            @SuppressWarnings("unchecked")
+            V result = value != mNull ? (V) value : null;
+            return result;
+        }
+
+        @NonNull
+        private LoaderValues getValues(@Nullable ClassLoader classLoader) {
+            if (classLoader == null) {
+                return mBootstrapValues;
+            }
+            for (LoaderValues loaderValues : mLoaders) {
+                if (loaderValues.getClassLoader() == classLoader) {
+                    return loaderValues;
+                }
+            }
+            synchronized (this) {
+                for (LoaderValues loaderValues : mLoaders) {
+                    if (loaderValues.getClassLoader() == classLoader) {
+                        return loaderValues;
+                    }
+                }
+                LoaderValues created = new LoaderValues(classLoader);
+                mLoaders = copyWithout(null, created);
+                return created;
+            }
+        }
+
+        synchronized void clear() {
+            mBootstrapValues.clear();
+            mLoaders = new LoaderValues[0];
+        }
+
+        synchronized void clear(@NonNull ClassLoader classLoader) {
+            mLoaders = copyWithout(classLoader, null);
+        }
+
+        // Drops the given loader and any that were collected, optionally adding another
+        @NonNull
+        private LoaderValues[] copyWithout(@Nullable ClassLoader classLoader, @Nullable LoaderValues added) {
+            List<LoaderValues> loaders = new ArrayList<>(mLoaders.length + 1);
+            for (LoaderValues loaderValues : mLoaders) {
+                ClassLoader loader = loaderValues.getClassLoader();
+                if (loader != null && loader != classLoader) {
+                    loaders.add(loaderValues);
+                }
+            }
+            if (added != null) {
+                loaders.add(added);
+            }
+            return loaders.toArray(new LoaderValues[loaders.size()]);
+        }
+    }
+
+    // Locked per loader, as each lookup reorders the recently used map
+    private static final class LoaderValues {
+
+        @Nullable
+        private final WeakReference<ClassLoader> mClassLoader;
+
+        @NonNull
+        private final LinkedHashMap<String, Object> mValues = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(@NonNull Map.Entry<String, Object> eldest) {
+                return size() > MAX_FOREIGN_VALUES;
+            }
+        };
+
+
+        LoaderValues(@Nullable ClassLoader classLoader) {
+            mClassLoader = classLoader != null ? new WeakReference<>(classLoader) : null;
+        }
+
+
+        @Nullable
+        ClassLoader getClassLoader() {
+            return mClassLoader != null ? mClassLoader.get() : null;
+        }
+
+        @Nullable
+        synchronized Object get(@NonNull String name) {
+            return mValues.get(name);
+        }
+
+        // Returns the value already stored for the name, if any, otherwise the given value
+        @NonNull
+        synchronized Object putIfAbsent(@NonNull String name, @NonNull Object value) {
+            Object existing = mValues.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            mValues.put(name, value);
+            return value;
+        }
+
+        synchronized void clear() {
+            mValues.clear();
+        }
+    }
+
+    private static final class Entry<V> {
+
+        @Nullable
+        V mValue;
+
+        volatile int mState = PENDING;
+
+
+        synchronized void resolve(@Nullable V value) {
+            mValue = value;
+            mState = RESOLVED;
+            notifyAll();
+        }
+
+        synchronized void fail() {
+            mState = FAILED;
+            notifyAll();
+        }
+
+        boolean await() {
+            if (mState == PENDING) {
+                boolean interrupted = false;
+                synchronized (this) {
+                    while (mState == PENDING) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return mState == RESOLVED;
+        }
+    }
+}
@@ -16,12 +16,19 @@
 
 package me.oriley.shiv;
 
+import android.content.Context;
 import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Process;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
+import android.view.View;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class Shiv {
@@ -30,97 +37,278 @@ public final class Shiv {
     private static final boolean DEBUG = false;
 
     @NonNull
-    private static final Map<Class<?>, Set<Class<?>>> sFlattenHierarchyCache = new HashMap<>();
+    private static final ClassCache<BinderChain> sBinderChainCache = new ClassCache<BinderChain>() {
+        @NonNull
+        @Override
+        BinderChain create(@NonNull Class<?> cls) {
+            return createBinderChain(cls);
+        }
+    };
+
+    @NonNull
+    private static final ClassCache<Binder> sBinderCache = new ClassCache<Binder>() {
+        @Nullable
+        @Override
+        Binder create(@NonNull Class<?> cls) {
+            return createBinder(cls);
+        }
+    };
+
+    @Nullable
+    private static volatile BinderIndex sBinderIndex;
+
+    @Nullable
+    private static volatile ShivProfile sProfile;
 
     @NonNull
-    private static final Map<Class<?>, Binder> sBinderCache = new HashMap<>();
+    private static final ThreadLocal<Batch> sBatch = new ThreadLocal<Batch>() {
+        @NonNull
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
 
 
+    // Binders resolved before the index was installed, including classes found to have none, are looked up again
     @SuppressWarnings("unused")
-    public static void bindViews(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.bindViews(object);
+    public static void installIndex(@NonNull BinderIndex index) {
+        sBinderIndex = index;
+        sBinderCache.clear();
+        sBinderChainCache.clear();
+    }
+
+    // Pass null to stop reporting, the overhead of which is then a single volatile read per operation
+    @SuppressWarnings("unused")
+    public static void setMetrics(@Nullable ShivMetrics metrics) {
+        ShivMetrics.sInstance = metrics;
+    }
+
+    // Resolves and caches binders for the given hosts on the calling thread
+    @SuppressWarnings("unused")
+    public static void preload(@NonNull Class<?>... hosts) {
+        for (Class<?> host : hosts) {
+            sBinderChainCache.get(host);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static void preloadInBackground(@NonNull final Class<?>... hosts) {
+        startBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                preload(hosts);
+            }
+        });
+    }
+
+    // Preloads the hosts recorded by a previous session, see startProfileRecording
+    @SuppressWarnings("unused")
+    public static void preloadProfile(@NonNull Context context) {
+        final Context appContext = context.getApplicationContext();
+        startBackgroundThread(new Runnable() {
+            @Override
+            public void run() {
+                for (Class<?> host : ShivProfile.read(appContext)) {
+                    sBinderChainCache.get(host);
+                }
             }
+        });
+    }
+
+    // Records every host bound from now on, adding to the profile read by preloadProfile
+    @SuppressWarnings("unused")
+    public static synchronized void startProfileRecording(@NonNull Context context) {
+        if (sProfile == null) {
+            sProfile = new ShivProfile(context);
         }
     }
 
     @SuppressWarnings("unused")
-    public static void unbindViews(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.unbindViews(object);
+    public static synchronized void stopProfileRecording() {
+        if (sProfile != null) {
+            sProfile.stop();
+            sProfile = null;
+        }
+    }
+
+    // Drops cached binders for hosts from a plugin or feature class loader that is being unloaded. Cached binders
+    // reference the loader's classes, so this should be called before the loader can be released.
+    @SuppressWarnings("unused")
+    public static void clearCache(@NonNull ClassLoader classLoader) {
+        sBinderChainCache.clear(classLoader);
+        sBinderCache.clear(classLoader);
+    }
+
+    // Runs a mask of Binder operations in one pass, with each binder handling all of its operations before the next
+    @SuppressWarnings("unused")
+    public static void bind(@NonNull Object object, int operations, @Nullable Bundle bundle) {
+        if ((operations & Binder.SAVE_NON_CONFIGURATION_INSTANCE) != 0) {
+            throw new IllegalArgumentException("Use saveNonConfigurationInstance() to save non-configuration instances");
+        }
+
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinderChain(object).getAll()) {
+            int binderOperations = binder.getOperations() & operations;
+            if (binderOperations != 0) {
+                binder.bind(object, binderOperations, bundle);
             }
         }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), operations, System.nanoTime() - start);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static void bindViews(@NonNull Object object) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_VIEWS)) {
+            binder.bindViews(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_VIEWS, System.nanoTime() - start);
+        }
+    }
+
+    // Binds views for any target, such as a view holder, from the given root
+    @SuppressWarnings("unused")
+    public static void bindViews(@NonNull Object object, @NonNull View root) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_VIEWS)) {
+            binder.bindViews(object, root);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_VIEWS, System.nanoTime() - start);
+        }
+    }
+
+    // Binds views in a subtree added to an already bound host, such as children added to a view group with addView
+    @SuppressWarnings("unused")
+    public static void bindAddedViews(@NonNull Object object, @NonNull View subtree) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_VIEWS)) {
+            binder.bindAddedViews(object, subtree);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_VIEWS, System.nanoTime() - start);
+        }
+    }
+
+    // Resolves the view binders for a target class once, for binding many instances such as list items
+    @SuppressWarnings("unused")
+    @NonNull
+    public static <T> ViewBinder<T> getViewBinder(@NonNull Class<T> targetClass) {
+        //noinspection ConstantConditions
+        BinderChain chain = sBinderChainCache.get(targetClass);
+        return new ViewBinder<>(targetClass, chain.get(Binder.BIND_VIEWS), chain.get(Binder.UNBIND_VIEWS));
+    }
+
+    @SuppressWarnings("unused")
+    public static void unbindViews(@NonNull Object object) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.UNBIND_VIEWS)) {
+            binder.unbindViews(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.UNBIND_VIEWS, System.nanoTime() - start);
+        }
     }
 
     @SuppressWarnings("unused")
     public static void bindPreferences(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.bindPreferences(object);
-            }
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_PREFERENCES)) {
+            binder.bindPreferences(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_PREFERENCES, System.nanoTime() - start);
         }
     }
 
     @SuppressWarnings("unused")
     public static void unbindPreferences(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.unbindPreferences(object);
-            }
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.UNBIND_PREFERENCES)) {
+            binder.unbindPreferences(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.UNBIND_PREFERENCES, System.nanoTime() - start);
         }
     }
 
     @SuppressWarnings("unused")
     public static void bindExtras(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.bindExtras(object);
-            }
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_EXTRAS)) {
+            binder.bindExtras(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_EXTRAS, System.nanoTime() - start);
         }
     }
 
     @SuppressWarnings("unused")
     public static void bindServices(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.bindServices(object);
-            }
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_SERVICES)) {
+            binder.bindServices(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_SERVICES, System.nanoTime() - start);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static void bindResources(@NonNull Object object) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.BIND_RESOURCES)) {
+            binder.bindResources(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.BIND_RESOURCES, System.nanoTime() - start);
         }
     }
 
     @SuppressWarnings("unused")
     public static void saveInstance(@NonNull Object object, @Nullable Bundle bundle) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.saveInstance(object, bundle);
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+
+        // Save into a separate bundle when measuring, so only what the binders write is counted
+        Bundle target = metrics != null && bundle != null ? new Bundle() : bundle;
+        for (Binder binder : getBinders(object, Binder.SAVE_INSTANCE)) {
+            binder.saveInstance(object, target);
+        }
+
+        if (metrics != null) {
+            long duration = System.nanoTime() - start;
+            if (target != null && target != bundle) {
+                metrics.onInstanceSaved(object.getClass(), getParcelledSize(target));
+                bundle.putAll(target);
             }
+            metrics.onOperation(object.getClass(), Binder.SAVE_INSTANCE, duration);
         }
     }
 
     @SuppressWarnings("unused")
     public static void restoreInstance(@NonNull Object object, @Nullable Bundle bundle) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.restoreInstance(object, bundle);
-            }
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.RESTORE_INSTANCE)) {
+            binder.restoreInstance(object, bundle);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.RESTORE_INSTANCE, System.nanoTime() - start);
         }
     }
 
@@ -128,95 +316,177 @@ public final class Shiv {
     @SuppressWarnings("unused")
     @NonNull
     public static Map<String, Object> saveNonConfigurationInstance(@NonNull Object object) {
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
         Map<String, Object> map = new HashMap<>();
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.saveNonConfigurationInstance(object, map);
-            }
+        for (Binder binder : getBinders(object, Binder.SAVE_NON_CONFIGURATION_INSTANCE)) {
+            binder.saveNonConfigurationInstance(object, map);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.SAVE_NON_CONFIGURATION_INSTANCE, System.nanoTime() - start);
         }
         return map;
     }
 
     @SuppressWarnings("unused")
     public static void restoreNonConfigurationInstance(@NonNull Object object) {
-        Set<Class<?>> registerTypes = flattenHierarchy(object.getClass());
-        for (Class<?> type : registerTypes) {
-            Binder binder = findBinderForClass(type);
-            if (binder != null) {
-                binder.restoreNonConfigurationInstance(object);
-            }
+        ShivMetrics metrics = ShivMetrics.sInstance;
+        long start = metrics != null ? System.nanoTime() : 0;
+        for (Binder binder : getBinders(object, Binder.RESTORE_NON_CONFIGURATION_INSTANCE)) {
+            binder.restoreNonConfigurationInstance(object);
+        }
+        if (metrics != null) {
+            metrics.onOperation(object.getClass(), Binder.RESTORE_NON_CONFIGURATION_INSTANCE, System.nanoTime() - start);
         }
     }
 
     @NonNull
-    private static Set<Class<?>> flattenHierarchy(@NonNull Class<?> concreteClass) {
-        Set<Class<?>> classes = sFlattenHierarchyCache.get(concreteClass);
-        if (classes == null) {
-            classes = getClassesFor(concreteClass);
-            sFlattenHierarchyCache.put(concreteClass, classes);
-        }
-        return classes;
+    private static Binder[] getBinders(@NonNull Object object, int operation) {
+        return getBinderChain(object).get(operation);
     }
 
     @NonNull
-    private static Set<Class<?>> getClassesFor(@NonNull Class<?> concreteClass) {
-        List<Class<?>> parents = new LinkedList<>();
-        Set<Class<?>> classes = new HashSet<>();
+    private static BinderChain getBinderChain(@NonNull Object object) {
+        Class<?> cls = object.getClass();
+        ShivProfile profile = sProfile;
+        if (profile != null) {
+            profile.record(cls);
+        }
+        //noinspection ConstantConditions
+        return sBinderChainCache.get(cls);
+    }
+
+    private static int getParcelledSize(@NonNull Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            bundle.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
 
-        parents.add(concreteClass);
+    private static void startBackgroundThread(@NonNull final Runnable runnable) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }
+        }, TAG + "-preload").start();
+    }
 
-        while (!parents.isEmpty()) {
-            Class<?> clazz = parents.remove(0);
+    @NonNull
+    private static BinderChain createBinderChain(@NonNull Class<?> concreteClass) {
+        List<Binder> binders = new ArrayList<>();
 
+        Class<?> clazz = concreteClass;
+        while (clazz != null) {
             Binder binder = findBinderForClass(clazz);
-            if (binder != null) {
-                classes.add(clazz);
+            if (binder != null && !isCoveredBy(binder, binders)) {
+                // Superclasses bind first
+                binders.add(0, binder);
             }
 
             Class<?> parent = clazz.getSuperclass();
             if (parent != null) {
                 String name = parent.getName();
-                if (!name.startsWith("java.") && !name.startsWith("android.")) {
-                    parents.add(parent);
+                if (name.startsWith("java.") || name.startsWith("android.")) {
+                    parent = null;
                 }
             }
+            clazz = parent;
         }
 
-        return classes;
+        return new BinderChain(binders);
+    }
+
+    // Generated binders extend the binder of an annotated superclass when they already chain to it
+    private static boolean isCoveredBy(@NonNull Binder binder, @NonNull List<Binder> subclassBinders) {
+        for (Binder subclassBinder : subclassBinders) {
+            if (binder.getClass().isInstance(subclassBinder)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Nullable
     private static Binder findBinderForClass(@NonNull Class<?> cls) {
-        Binder binder = sBinderCache.get(cls);
-        if (binder != null) {
-            log("Found cached Binder for %s.", cls);
-            return binder;
+        return sBinderCache.get(cls);
+    }
+
+    @Nullable
+    private static Binder createBinder(@NonNull Class<?> cls) {
+        Binder binder;
+        BinderIndex index = sBinderIndex;
+        if (index != null) {
+            binder = index.getBinder(cls);
+            if (DEBUG) {
+                log(binder != null ? "Found indexed Binder for %s." : "Binder not indexed for %s.", cls);
+            }
+        } else {
+            try {
+                Class<?> binderClass = Class.forName(cls.getName() + Binder.CLASS_SUFFIX);
+                //noinspection unchecked
+                binder = (Binder) binderClass.newInstance();
+                if (DEBUG) {
+                    log("Created Binder for %s.", cls);
+                }
+            } catch (Exception e) {
+                if (DEBUG) {
+                    log("Binder not found for %s.", cls);
+                }
+                binder = null;
+            }
         }
+        return binder;
+    }
 
-        try {
-            Class<?> binderClass = Class.forName(cls.getName() + Binder.CLASS_SUFFIX);
-            //noinspection unchecked
-            binder = (Binder) binderClass.newInstance();
-            log("Created Binder for %s.", cls);
-        } catch (Exception e) {
-            log("Binder not found for %s.", cls);
-            binder = null;
+    private static void log(@NonNull String message, @NonNull Object arg) {
+        Log.d(TAG, String.format(message, arg));
+    }
+
+    // Binders are fixed for the target class, so instances must be of exactly that class rather than a subclass
+    public static final class ViewBinder<T> {
+
+        @NonNull
+        private final Class<T> mTargetClass;
+
+        @NonNull
+        private final Binder[] mBindBinders;
+
+        @NonNull
+        private final Binder[] mUnbindBinders;
+
+
+        ViewBinder(@NonNull Class<T> targetClass, @NonNull Binder[] bindBinders, @NonNull Binder[] unbindBinders) {
+            mTargetClass = targetClass;
+            mBindBinders = bindBinders;
+            mUnbindBinders = unbindBinders;
         }
 
-        if (binder != null) {
-            sBinderCache.put(cls, binder);
+
+        public void bind(@NonNull T target, @NonNull View root) {
+            ShivMetrics metrics = ShivMetrics.sInstance;
+            long start = metrics != null ? System.nanoTime() : 0;
+            for (Binder binder : mBindBinders) {
+                binder.bindViews(target, root);
+            }
+            if (metrics != null) {
+                metrics.onOperation(mTargetClass, Binder.BIND_VIEWS, System.nanoTime() - start);
+            }
         }
-        return binder;
-    }
 
-    private static void log(@NonNull String message, @Nullable Object... args) {
-        if (DEBUG) {
-            if (args != null) {
-                message = String.format(message, args);
+        public void unbind(@NonNull T target) {
+            ShivMetrics metrics = ShivMetrics.sInstance;
+            long start = metrics != null ? System.nanoTime() : 0;
+            for (Binder binder : mUnbindBinders) {
+                binder.unbindViews(target);
+            }
+            if (metrics != null) {
+                metrics.onOperation(mTargetClass, Binder.UNBIND_VIEWS, System.nanoTime() - start);
             }
-            Log.d(TAG, message);
         }
     }
 
@@ -225,6 +495,14 @@ public final class Shiv {
         return new FluentInterface(host);
     }
 
+    // Collects operations for a single pass by bind(), the returned batch is reused by the calling thread
+    @NonNull
+    public static Batch batch(@NonNull Object host) {
+        Batch batch = sBatch.get();
+        batch.start(host);
+        return batch;
+    }
+
     public static final class FluentInterface {
 
         @NonNull
@@ -272,6 +550,12 @@ public final class Shiv {
             return this;
         }
 
+        @NonNull
+        public FluentInterface bindResources() {
+            Shiv.bindResources(mHost);
+            return this;
+        }
+
         @NonNull
         public FluentInterface saveInstance(@Nullable Bundle bundle) {
             Shiv.saveInstance(mHost, bundle);
@@ -290,4 +574,114 @@ public final class Shiv {
             return this;
         }
     }
-}
\ No newline at end of file
+
+    public static final class Batch {
+
+        @Nullable
+        private Object mHost;
+
+        @Nullable
+        private Bundle mBundle;
+
+        private int mOperations;
+
+
+        Batch() {
+        }
+
+
+        void start(@NonNull Object host) {
+            if (mHost != null) {
+                Log.w(TAG, "Discarding operations never run by bind() for " + mHost);
+            }
+            mHost = host;
+            mBundle = null;
+            mOperations = 0;
+        }
+
+        @NonNull
+        public Batch bindViews() {
+            return add(Binder.BIND_VIEWS);
+        }
+
+        @NonNull
+        public Batch unbindViews() {
+            return add(Binder.UNBIND_VIEWS);
+        }
+
+        @NonNull
+        public Batch bindExtras() {
+            return add(Binder.BIND_EXTRAS);
+        }
+
+        @NonNull
+        public Batch bindPreferences() {
+            return add(Binder.BIND_PREFERENCES);
+        }
+
+        @NonNull
+        public Batch unbindPreferences() {
+            return add(Binder.UNBIND_PREFERENCES);
+        }
+
+        @NonNull
+        public Batch bindServices() {
+            return add(Binder.BIND_SERVICES);
+        }
+
+        @NonNull
+        public Batch bindResources() {
+            return add(Binder.BIND_RESOURCES);
+        }
+
+        @NonNull
+        public Batch saveInstance(@Nullable Bundle bundle) {
+            setBundle(bundle);
+            return add(Binder.SAVE_INSTANCE);
+        }
+
+        @NonNull
+        public Batch restoreInstance(@Nullable Bundle bundle) {
+            setBundle(bundle);
+            return add(Binder.RESTORE_INSTANCE);
+        }
+
+        @NonNull
+        public Batch restoreNonConfigurationInstance() {
+            return add(Binder.RESTORE_NON_CONFIGURATION_INSTANCE);
+        }
+
+        // Runs all collected operations, releasing the host before any binder is called
+        public void bind() {
+            Object host = mHost;
+            if (host == null) {
+                throw new IllegalStateException("bind() called without Shiv.batch()");
+            }
+
+            Bundle bundle = mBundle;
+            int operations = mOperations;
+            mHost = null;
+            mBundle = null;
+            mOperations = 0;
+            Shiv.bind(host, operations, bundle);
+        }
+
+        @NonNull
+        private Batch add(int operation) {
+            if (mHost == null) {
+                throw new IllegalStateException("Operation added without Shiv.batch()");
+            }
+            mOperations |= operation;
+            return this;
+        }
+
+        private void setBundle(@Nullable Bundle bundle) {
+            if (mBundle != null && bundle != null && mBundle != bundle) {
+                throw new IllegalArgumentException("Instance state can only be saved or restored with a single Bundle");
+            }
+            if (bundle != null) {
+                mBundle = bundle;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Records the host classes bound during a session, one class name per line, so a later launch can preload them.
+ * Hosts from earlier sessions are kept after those of the current one, so a short session doesn't lose them.
+ */
+final class ShivProfile {
+
+    private static final String TAG = ShivProfile.class.getSimpleName();
+    private static final String FILE_NAME = "shiv.profile";
+    private static final String CHARSET = "UTF-8";
+
+    @NonNull
+    private final Context mContext;
+
+    @Nullable
+    private final ClassLoader mClassLoader;
+
+    @NonNull
+    private final Set<Class<?>> mRecorded = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    @NonNull
+    private final List<String> mClassNames = new ArrayList<>();
+
+    // Daemon, so an app that never stops recording can still exit
+    @NonNull
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Names from the profile of earlier sessions, only touched by the writer thread
+    @Nullable
+    private List<String> mPreviousClassNames;
+
+
+    ShivProfile(@NonNull Context context) {
+        mContext = context.getApplicationContext();
+        mClassLoader = mContext.getClassLoader();
+    }
+
+
+    void record(@NonNull Class<?> cls) {
+        // Hosts from other loaders could not be found by read, and recording them would pin their loader
+        if (cls.getClassLoader() != mClassLoader || !mRecorded.add(cls)) {
+            return;
+        }
+
+        final List<String> snapshot;
+        synchronized (mClassNames) {
+            mClassNames.add(cls.getName());
+            snapshot = new ArrayList<>(mClassNames);
+        }
+
+        try {
+            mWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(snapshot);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Recording was stopped concurrently
+        }
+    }
+
+    void stop() {
+        mWriter.shutdown();
+    }
+
+    @WorkerThread
+    private void write(@NonNull List<String> classNames) {
+        File file = getFile(mContext);
+        if (mPreviousClassNames == null) {
+            // Hosts removed since the earlier sessions are dropped rather than carried forward
+            mPreviousClassNames = new ArrayList<>();
+            for (String className : readClassNames(file)) {
+                try {
+                    Class.forName(className, false, mClassLoader);
+                    mPreviousClassNames.add(className);
+                } catch (ClassNotFoundException e) {
+                    // Not kept
+                }
+            }
+        }
+
+        Set<String> merged = new LinkedHashSet<>(classNames);
+        merged.addAll(mPreviousClassNames);
+
+        // Write to a temporary file first so a reader never sees a partial profile
+        File temp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), CHARSET));
+            for (String className : merged) {
+                writer.write(className);
+                writer.write('\n');
+            }
+            writer.close();
+            writer = null;
+            if (!temp.renameTo(file)) {
+                Log.w(TAG, "Unable to write profile to " + file);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write profile to " + file, e);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    @NonNull
+    @WorkerThread
+    static List<Class<?>> read(@NonNull Context context) {
+        List<Class<?>> classes = new ArrayList<>();
+        ClassLoader classLoader = context.getClassLoader();
+        for (String className : readClassNames(getFile(context))) {
+            try {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                // Host was removed since the profile was recorded
+            }
+        }
+        return classes;
+    }
+
+    @NonNull
+    @WorkerThread
+    private static List<String> readClassNames(@NonNull File file) {
+        List<String> classNames = new ArrayList<>();
+        if (!file.exists()) {
+            return classNames;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    classNames.add(line);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read profile from " + file, e);
+        } finally {
+            closeQuietly(reader);
+        }
+        return classNames;
+    }
+
+    @NonNull
+    private static File getFile(@NonNull Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignored
+            }
+        }
+    }
+}
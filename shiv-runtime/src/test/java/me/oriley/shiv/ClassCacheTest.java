@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.shiv;
+
+import android.support.annotation.NonNull;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public final class ClassCacheTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2000;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static final Class<?>[] HOSTS = {HostA.class, HostB.class, HostC.class, HostD.class, HostE.class,
+            HostF.class, HostG.class, HostH.class};
+
+
+    @Test
+    public void concurrentLookupsCreateEachValueOnce() throws Exception {
+        assertSingleCreation(new CountingCache());
+    }
+
+    @Test
+    public void failedCreationIsRetriedAndNotCached() throws Exception {
+        final CountingCache cache = new CountingCache();
+        for (Class<?> host : HOSTS) {
+            cache.failNext(host);
+        }
+        final AtomicInteger failures = new AtomicInteger();
+
+        race(new Task() {
+            @Override
+            public void run(int thread, int iteration) {
+                Class<?> host = HOSTS[(thread * 3 + iteration) % HOSTS.length];
+                try {
+                    assertNotNull(cache.get(host));
+                } catch (IllegalStateException e) {
+                    failures.incrementAndGet();
+                }
+            }
+        });
+
+        // One failure per host, seen only by the thread that was creating it, and one successful creation after it
+        assertEquals(HOSTS.length, failures.get());
+        for (Class<?> host : HOSTS) {
+            assertEquals(2, cache.getCreateCount(host));
+        }
+    }
+
+    @Test
+    public void clearDuringLookupsOnlyRecreatesClearedValues() throws Exception {
+        final CountingCache cache = new CountingCache();
+        final AtomicInteger clears = new AtomicInteger();
+
+        race(new Task() {
+            @Override
+            public void run(int thread, int iteration) {
+                if (thread == 0 && iteration % 50 == 0) {
+                    cache.clear();
+                    clears.incrementAndGet();
+                } else {
+                    assertNotNull(cache.get(HOSTS[(thread + iteration) % HOSTS.length]));
+                }
+            }
+        });
+
+        // Each clear can cause at most one more creation per host
+        for (Class<?> host : HOSTS) {
+            int created = cache.getCreateCount(host);
+            assertTrue(created >= 1 && created <= clears.get() + 1);
+        }
+
+        // Once clears stop, racing lookups settle on a single value again
+        cache.clear();
+        cache.resetCounts();
+        assertSingleCreation(cache);
+    }
+
+    @Test
+    public void foreignValuesSurviveCollection() throws Exception {
+        CountingCache cache = new CountingCache();
+        Class<?> host = loadForeign(HostA.class);
+        Object value = cache.get(host);
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        assertSame(value, cache.get(host));
+        assertEquals(1, cache.getCreateCount(host));
+    }
+
+    @Test
+    public void foreignValuesAreBoundedPerLoader() throws Exception {
+        // Array classes are defined by the bootstrap loader, so are foreign to the cache
+        CountingCache cache = new CountingCache();
+        List<Class<?>> hosts = new ArrayList<>();
+        StringBuilder name = new StringBuilder("I");
+        for (int i = 0; i < 40; i++) {
+            name.insert(0, '[');
+            hosts.add(Class.forName(name.toString()));
+        }
+
+        Class<?> recent = hosts.get(0);
+        for (Class<?> host : hosts) {
+            assertNotNull(cache.get(host));
+            assertNotNull(cache.get(recent));
+        }
+        // The value used throughout is kept, while the oldest of the others are evicted and created again
+        assertEquals(1, cache.getCreateCount(recent));
+        assertNotNull(cache.get(hosts.get(1)));
+        assertEquals(2, cache.getCreateCount(hosts.get(1)));
+        assertNotNull(cache.get(hosts.get(hosts.size() - 1)));
+        assertEquals(1, cache.getCreateCount(hosts.get(hosts.size() - 1)));
+    }
+
+    @Test
+    public void clearingLoaderRecreatesItsValues() throws Exception {
+        CountingCache cache = new CountingCache();
+        Class<?> foreign = loadForeign(HostA.class);
+        Object value = cache.get(foreign);
+        Object local = cache.get(HostA.class);
+
+        cache.clear(foreign.getClassLoader());
+        assertNotSame(value, cache.get(foreign));
+        assertEquals(2, cache.getCreateCount(foreign));
+        assertSame(local, cache.get(HostA.class));
+    }
+
+    // The same class defined again by a loader of its own, as for a plugin
+    @NonNull
+    private static Class<?> loadForeign(@NonNull Class<?> cls) throws Exception {
+        URL location = ClassCacheTest.class.getProtectionDomain().getCodeSource().getLocation();
+        Class<?> foreign = new URLClassLoader(new URL[]{location}, null).loadClass(cls.getName());
+        assertNotSame(cls, foreign);
+        return foreign;
+    }
+
+    // Every thread must see the one value created for each host
+    private static void assertSingleCreation(@NonNull final CountingCache cache) throws Exception {
+        final ConcurrentHashMap<Class<?>, Object> seen = new ConcurrentHashMap<>();
+
+        race(new Task() {
+            @Override
+            public void run(int thread, int iteration) {
+                Class<?> host = HOSTS[(thread + iteration) % HOSTS.length];
+                Object value = cache.get(host);
+                assertNotNull(value);
+                Object previous = seen.putIfAbsent(host, value);
+                assertSame(previous != null ? previous : value, value);
+            }
+        });
+
+        for (Class<?> host : HOSTS) {
+            assertEquals(1, cache.getCreateCount(host));
+        }
+    }
+
+    // Starts all threads together so lookups of the same class overlap, rethrowing the first failure
+    private static void race(@NonNull final Task task) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        barrier.await();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            task.run(thread, i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Task {
+        void run(int thread, int iteration);
+    }
+
+    private static final class CountingCache extends ClassCache<Object> {
+
+        @NonNull
+        private final ConcurrentHashMap<Class<?>, AtomicInteger> mCreateCounts = new ConcurrentHashMap<>();
+
+        @NonNull
+        private final ConcurrentHashMap<Class<?>, AtomicBoolean> mFailNext = new ConcurrentHashMap<>();
+
+
+        @NonNull
+        @Override
+        Object create(@NonNull Class<?> cls) {
+            counter(cls).incrementAndGet();
+            // Widen the window in which other threads find the entry pending
+            Thread.yield();
+            AtomicBoolean failNext = mFailNext.get(cls);
+            if (failNext != null && failNext.compareAndSet(true, false)) {
+                throw new IllegalStateException("Failed creating value for " + cls);
+            }
+            return new Object();
+        }
+
+        int getCreateCount(@NonNull Class<?> cls) {
+            return counter(cls).get();
+        }
+
+        void failNext(@NonNull Class<?> cls) {
+            mFailNext.put(cls, new AtomicBoolean(true));
+        }
+
+        void resetCounts() {
+            mCreateCounts.clear();
+        }
+
+        @NonNull
+        private AtomicInteger counter(@NonNull Class<?> cls) {
+            AtomicInteger counter = mCreateCounts.get(cls);
+            if (counter == null) {
+                AtomicInteger created = new AtomicInteger();
+                counter = mCreateCounts.putIfAbsent(cls, created);
+                if (counter == null) {
+                    counter = created;
+                }
+            }
+            return counter;
+        }
+    }
+
+    private static final class HostA {}
+    private static final class HostB {}
+    private static final class HostC {}
+    private static final class HostD {}
+    private static final class HostE {}
+    private static final class HostF {}
+    private static final class HostG {}
+    private static final class HostH {}
+}